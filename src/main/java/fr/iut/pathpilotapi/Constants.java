@@ -16,4 +16,24 @@ public class Constants {
      * Max length authorized for clients itinerary list
      */
     public static final int MAX_CLIENTS = 8;
+
+    /**
+     * Max number of itineraries created in a single batch
+     */
+    public static final int MAX_ITINERARIES_BATCH = 50;
+
+    /**
+     * Max number of salesman positions uploaded at once
+     */
+    public static final int MAX_POSITIONS_BATCH = 1000;
+
+    /**
+     * Max number of salesman positions returned at once from the trace of a route
+     */
+    public static final int MAX_TRACE_POSITIONS = 10000;
+
+    /**
+     * Max number of nearby prospects returned for a position of the salesman
+     */
+    public static final int MAX_NEARBY_CLIENTS = 50;
 }
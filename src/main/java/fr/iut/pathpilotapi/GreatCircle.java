@@ -0,0 +1,38 @@
+/*
+ * GreatCircle.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi;
+
+/**
+ * Great-circle distances between two points of the Earth, with the haversine formula.
+ * <p>
+ * The coordinates are in radians, with the cosine of their latitude,
+ * so a caller comparing a point with many others computes its trigonometric values once.
+ */
+public class GreatCircle {
+
+    /**
+     * Mean radius of the Earth in meters
+     */
+    public static final double EARTH_RADIUS = 6_371_008.8;
+
+    /**
+     * Compute the angle between two points seen from the center of the Earth.
+     *
+     * @param lat1    the latitude of the first point, in radians
+     * @param lon1    the longitude of the first point, in radians
+     * @param cosLat1 the cosine of the latitude of the first point
+     * @param lat2    the latitude of the second point, in radians
+     * @param lon2    the longitude of the second point, in radians
+     * @param cosLat2 the cosine of the latitude of the second point
+     * @return the angle in radians, the distance on the unit sphere
+     */
+    public static double angle(double lat1, double lon1, double cosLat1, double lat2, double lon2, double cosLat2) {
+        double sinHalfDeltaLat = Math.sin((lat2 - lat1) / 2);
+        double sinHalfDeltaLon = Math.sin((lon2 - lon1) / 2);
+        double a = sinHalfDeltaLat * sinHalfDeltaLat + cosLat1 * cosLat2 * sinHalfDeltaLon * sinHalfDeltaLon;
+        return 2 * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * LruCache.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In memory cache with a max size, which evicts the least recently used entry when it's full.
+ * <p>
+ * The entries may expire after a time to live, the expired ones are evicted when they are read.
+ * <br>
+ * The map is guarded by a {@link ReentrantLock} rather than {@code synchronized},
+ * so a virtual thread waiting for it doesn't pin its carrier thread.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+public class LruCache<K, V> {
+
+    private final int maxSize;
+
+    /**
+     * Time to live of the entries in milliseconds, or a negative value if they never expire
+     */
+    private final long timeToLive;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The entries in access order, so the eldest entry is the least recently used one
+     */
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    /**
+     * Create a cache whose entries never expire.
+     *
+     * @param maxSize the max number of entries
+     */
+    public LruCache(int maxSize) {
+        this(maxSize, -1);
+    }
+
+    /**
+     * Create a cache whose entries expire after a time to live.
+     *
+     * @param maxSize    the max number of entries
+     * @param timeToLive the time after which an entry expires
+     */
+    public LruCache(int maxSize, Duration timeToLive) {
+        this(maxSize, timeToLive.toMillis());
+    }
+
+    private LruCache(int maxSize, long timeToLive) {
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get a value from the cache.
+     *
+     * @param key the key of the value
+     * @return the value, or null if it isn't in the cache or has expired
+     */
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAt() <= System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add a value to the cache, or replace it if it's already in.
+     *
+     * @param key   the key of the value
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        long expiresAt = timeToLive < 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeToLive;
+        lock.lock();
+        try {
+            entries.put(key, new Entry<>(value, expiresAt));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove a value from the cache.
+     *
+     * @param key the key of the value
+     */
+    public void remove(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of entries in the cache, including the expired ones not evicted yet
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -8,6 +8,7 @@ package fr.iut.pathpilotapi.algorithm;
 import lombok.Getter;
 
 import java.util.List;
+import java.util.function.DoubleConsumer;
 
 /**
  * Abstract Class to represent an algorithm to find the best path to optimize the itinerary.
@@ -25,6 +26,12 @@ public abstract class Algorithm {
     protected List<Integer> bestPath;
     protected double bestDistance;
 
+    /**
+     * Notified with the distance each time a better path is found
+     */
+    private DoubleConsumer bestDistanceListener = distance -> {
+    };
+
     /**
      * Compute the best path to optimize the itinerary.
      */
@@ -39,6 +46,28 @@ public abstract class Algorithm {
         this.distances = distances;
     }
 
+    /**
+     * Set the listener notified with the distance each time a better path is found,
+     * to follow the progress of a long computation.
+     *
+     * @param bestDistanceListener the listener
+     */
+    public void setBestDistanceListener(DoubleConsumer bestDistanceListener) {
+        this.bestDistanceListener = bestDistanceListener;
+    }
+
+    /**
+     * Keep a path better than the best path found so far.
+     *
+     * @param path     the new best path
+     * @param distance the distance of the new best path
+     */
+    protected void updateBestPath(List<Integer> path, double distance) {
+        bestPath = path;
+        bestDistance = distance;
+        bestDistanceListener.accept(distance);
+    }
+
     /**
      * @return the distance of the best path
      */
@@ -41,8 +41,7 @@ public class BranchAndBound extends Algorithm {
         if (remainingClientsIndex.isEmpty()) {
             currentDistance += getDistance(currentClientsVisited.getLast(), 0);
             if (currentDistance < bestDistance) {
-                bestDistance = currentDistance;
-                bestPath = new ArrayList<>(currentClientsVisited);
+                updateBestPath(new ArrayList<>(currentClientsVisited), currentDistance);
             }
             return bestDistance;
         }
@@ -56,8 +56,7 @@ public class BruteForce extends Algorithm {
         for (List<Integer> path : allPossiblePath) {
             Double pathDistance = getCompleteDistance(path);
             if (pathDistance < bestDistance) {
-                bestDistance = pathDistance;
-                bestPath = path;
+                updateBestPath(path, pathDistance);
             }
         }
     }
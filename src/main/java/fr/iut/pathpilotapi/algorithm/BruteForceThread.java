@@ -52,8 +52,7 @@ public class BruteForceThread extends BruteForce {
             PossiblePath bestPath = findBestAmongFutures(futures);
 
             // Update of the best path found
-            this.bestPath = bestPath.path();
-            this.bestDistance = bestPath.distance();
+            updateBestPath(bestPath.path(), bestPath.distance());
 
         } catch (InterruptedException | ExecutionException e) {
             Thread.currentThread().interrupt();
@@ -30,8 +30,22 @@ public class ClientPagedModelAssembler implements RepresentationModelAssembler<P
 
     @Override
     public PagedModel<ClientResponseModel> toModel(Page<Client> entities) {
+        return toPagedModel(entities.map(clientResponseModelAssembler::toModel));
+    }
+
+    /**
+     * Assemble a paged model from a page of client projections.
+     *
+     * @param views the page of client projections
+     * @return the paged model, with the same links as a page of client entities
+     */
+    public PagedModel<ClientResponseModel> toModelFromViews(Page<ClientView> views) {
+        return toPagedModel(views.map(clientResponseModelAssembler::toModel));
+    }
+
+    private PagedModel<ClientResponseModel> toPagedModel(Page<ClientResponseModel> entities) {
         PagedModel<ClientResponseModel> pagedModel = PagedModel.of(
-                entities.map(clientResponseModelAssembler::toModel).getContent(),
+                entities.getContent(),
                 new PagedModel.PageMetadata(
                         entities.getSize(),
                         entities.getNumber(),
@@ -34,15 +34,40 @@ public class ClientResponseModelAssembler extends RepresentationModelAssemblerSu
     public ClientResponseModel toModel(Client entity) {
         ClientResponseModel clientResponseModel = modelMapper.map(entity, ClientResponseModel.class);
 
+        return addLinks(clientResponseModel);
+    }
+
+    /**
+     * Assemble a ClientResponseModel from the projection of a client.
+     *
+     * @param view the projection of the client
+     * @return the model, with the same links as a client entity
+     */
+    public ClientResponseModel toModel(ClientView view) {
+        ClientResponseModel clientResponseModel = new ClientResponseModel();
+        clientResponseModel.setId(view.id());
+        clientResponseModel.setCompanyName(view.companyName());
+        clientResponseModel.setLatHomeAddress(view.latHomeAddress());
+        clientResponseModel.setLongHomeAddress(view.longHomeAddress());
+        clientResponseModel.setClientCategory(view.clientCategory());
+        clientResponseModel.setDescription(view.description());
+        clientResponseModel.setContactLastName(view.contactLastName());
+        clientResponseModel.setContactFirstName(view.contactFirstName());
+        clientResponseModel.setPhoneNumber(view.phoneNumber());
+
+        return addLinks(clientResponseModel);
+    }
+
+    private ClientResponseModel addLinks(ClientResponseModel clientResponseModel) {
         clientResponseModel.add(
                 linkTo(
-                        methodOn(ClientController.class).getClientById(entity.getId())
+                        methodOn(ClientController.class).getClientById(clientResponseModel.getId())
                 ).withSelfRel()
         );
 
         clientResponseModel.add(
                 linkTo(
-                        methodOn(ClientController.class).deleteClient(entity.getId())
+                        methodOn(ClientController.class).deleteClient(clientResponseModel.getId())
                 ).withRel("delete")
         );
 
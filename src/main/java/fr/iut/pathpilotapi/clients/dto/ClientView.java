@@ -0,0 +1,37 @@
+/*
+ * ClientView.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.clients.dto;
+
+import fr.iut.pathpilotapi.clients.entity.ClientCategory;
+
+/**
+ * Projection of a client with only the fields sent to the salesman,
+ * so his salesman isn't read with each client.
+ *
+ * @param id               the client ID
+ * @param salesmanId       the ID of the salesman who owns the client
+ * @param companyName      the name of the company
+ * @param latHomeAddress   the latitude of the company's location
+ * @param longHomeAddress  the longitude of the company's location
+ * @param clientCategory   the category of the client
+ * @param description      the description of the client
+ * @param contactLastName  the last name of the contact person
+ * @param contactFirstName the first name of the contact person
+ * @param phoneNumber      the phone number of the contact person
+ */
+public record ClientView(
+        Integer id,
+        Integer salesmanId,
+        String companyName,
+        double latHomeAddress,
+        double longHomeAddress,
+        ClientCategory clientCategory,
+        String description,
+        String contactLastName,
+        String contactFirstName,
+        String phoneNumber
+) {
+}
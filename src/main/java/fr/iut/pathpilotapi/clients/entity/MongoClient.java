@@ -28,6 +28,11 @@ public class MongoClient {
     @Id
     private Integer id;
 
+    /**
+     * The ID of the salesman of the client, so the nearby clients are filtered on him by MongoDB
+     */
+    private Integer salesmanId;
+
     @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
     private GeoJsonPoint location;
 
@@ -0,0 +1,18 @@
+/*
+ * ClientCreatedEvent.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.clients.event;
+
+import fr.iut.pathpilotapi.clients.entity.Client;
+import fr.iut.pathpilotapi.salesman.Salesman;
+
+/**
+ * Published when a client is created, once it's saved.
+ *
+ * @param client   the new client
+ * @param salesman the salesman owning the client
+ */
+public record ClientCreatedEvent(Client client, Salesman salesman) {
+}
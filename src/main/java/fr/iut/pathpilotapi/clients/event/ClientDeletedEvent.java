@@ -0,0 +1,18 @@
+/*
+ * ClientDeletedEvent.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.clients.event;
+
+import fr.iut.pathpilotapi.clients.entity.Client;
+import fr.iut.pathpilotapi.salesman.Salesman;
+
+/**
+ * Published when a client is deleted.
+ *
+ * @param client   the deleted client
+ * @param salesman the salesman who owned the client
+ */
+public record ClientDeletedEvent(Client client, Salesman salesman) {
+}
@@ -5,12 +5,16 @@
 
 package fr.iut.pathpilotapi.clients.repository;
 
+import fr.iut.pathpilotapi.clients.dto.ClientView;
 import fr.iut.pathpilotapi.clients.entity.Client;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ClientRepository extends JpaRepository<Client, Integer> {
@@ -31,4 +35,19 @@ public interface ClientRepository extends JpaRepository<Client, Integer> {
      * @return a list of clients
      */
     List<Client> findAllBySalesman(Salesman salesman);
+
+    /**
+     * Find the clients with the given IDs that belong to a salesman, in a single query.
+     * <p>
+     * Only the fields of the {@link ClientView} are read, so the salesman isn't joined.
+     *
+     * @param ids        the IDs of the clients
+     * @param salesmanId the ID of the salesman
+     * @return the clients found, the other ones don't exist or belong to another salesman
+     */
+    @Query("SELECT new fr.iut.pathpilotapi.clients.dto.ClientView(c.id, c.salesman.id, c.companyName, c.latHomeAddress, "
+            + "c.longHomeAddress, category, c.description, c.contactLastName, c.contactFirstName, c.phoneNumber) "
+            + "FROM Client c LEFT JOIN c.clientCategory category "
+            + "WHERE c.id IN :ids AND c.salesman.id = :salesmanId")
+    List<ClientView> findAllViewsByIdInAndSalesmanId(@Param("ids") Collection<Integer> ids, @Param("salesmanId") Integer salesmanId);
 }
@@ -6,8 +6,11 @@
 package fr.iut.pathpilotapi.clients.service;
 
 import fr.iut.pathpilotapi.clients.dto.ClientRequestModel;
+import fr.iut.pathpilotapi.clients.dto.ClientView;
 import fr.iut.pathpilotapi.clients.entity.Client;
 import fr.iut.pathpilotapi.clients.entity.MongoClient;
+import fr.iut.pathpilotapi.clients.event.ClientCreatedEvent;
+import fr.iut.pathpilotapi.clients.event.ClientDeletedEvent;
 import fr.iut.pathpilotapi.clients.repository.ClientRepository;
 import fr.iut.pathpilotapi.clients.repository.MongoClientRepository;
 import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
@@ -18,13 +21,18 @@ import fr.iut.pathpilotapi.salesman.Salesman;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -41,6 +49,10 @@ public class ClientService {
 
     private final RouteRepository routeRepository;
 
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ClientViewCache clientViewCache;
+
     /**
      * Get all clients that belong to the connected salesman.
      *
@@ -64,6 +76,8 @@ public class ClientService {
 
     /**
      * Create a new client in the database.
+     * <p>
+     * A {@link ClientCreatedEvent} is published, so the distances to the new client are fetched in advance.
      *
      * @param clientRM the salesman to create
      * @param salesman the connected salesman
@@ -83,14 +97,17 @@ public class ClientService {
         // Save the lite version of the client in MongoDB if the client is a PROSPECT
         if (client.getClientCategory().getName().equals("PROSPECT")) {
             MongoClient liteClient = new MongoClient(savedClient.getId(), clientRM.getLatHomeAddress(), clientRM.getLongHomeAddress());
+            liteClient.setSalesmanId(salesman.getId());
             mongoClientRepository.save(liteClient);
         }
 
+        eventPublisher.publishEvent(new ClientCreatedEvent(savedClient, salesman));
         return savedClient;
     }
 
     /**
      * Delete a client, if the connected salesman is the one related to the client.
+     * A {@link ClientDeletedEvent} is published.
      *
      * @param id       the client id
      * @param salesman the connected salesman
@@ -101,6 +118,7 @@ public class ClientService {
 
         // Perform the delete operation
         clientRepository.delete(client);
+        eventPublisher.publishEvent(new ClientDeletedEvent(client, salesman));
     }
 
     /**
@@ -149,38 +167,91 @@ public class ClientService {
      *
      * @param clientsSchedule the list of clients id
      * @param salesman        the salesman
-     * @return the list of clients
-     * @throws IllegalArgumentException if a client does not exist or does not belong to the salesman
+     * @return the list of clients, in the order of the list of clients id
+     * @throws ObjectNotFoundException    if a client does not exist
+     * @throws SalesmanBelongingException if a client does not belong to the salesman
      */
     public List<Client> getAllClients(List<Integer> clientsSchedule, Salesman salesman) {
-        List<Client> clients = clientRepository.findAllById(clientsSchedule);
+        return getAllClients(clientsSchedule, salesman, findAllById(clientsSchedule));
+    }
+
+    /**
+     * Get all clients from a list of clients id, among clients already fetched.
+     * <p>
+     * Used to check several lists of clients with a single query.
+     *
+     * @param clientsSchedule the list of clients id
+     * @param salesman        the salesman
+     * @param clientsById     the clients already fetched, by id
+     * @return the list of clients, in the order of the list of clients id
+     * @throws ObjectNotFoundException    if a client does not exist
+     * @throws SalesmanBelongingException if a client does not belong to the salesman
+     * @see #findAllById(Collection)
+     */
+    public List<Client> getAllClients(List<Integer> clientsSchedule, Salesman salesman, Map<Integer, Client> clientsById) {
         // Sorting the clients list after findAll
-        List<Client> orderedClients = clientsSchedule.stream()
-                .map(id -> clients.stream()
-                        .filter(client -> client.getId() == id)
-                        .findFirst()
-                        .orElse(null))
-                .filter(Objects::nonNull).toList();
-
-        if (orderedClients.size() != clientsSchedule.size()) {
-            throw new IllegalArgumentException("Client not found");
-        }
-        if (!orderedClients.stream().allMatch(client -> clientBelongToSalesman(client, salesman))) {
-            throw new IllegalArgumentException("Client does not belong to the salesman");
+        List<Client> orderedClients = new ArrayList<>(clientsSchedule.size());
+        for (Integer id : clientsSchedule) {
+            Client client = clientsById.get(id);
+            if (client == null) {
+                throw new ObjectNotFoundException("Client not found with ID: " + id);
+            }
+            if (!clientBelongToSalesman(client, salesman)) {
+                throw new SalesmanBelongingException("Client with ID: " + id + " does not belong to the connected salesman.");
+            }
+            orderedClients.add(client);
         }
         return orderedClients;
     }
 
     /**
-     * Return the locations for the clients specified.
+     * Get the clients with the given ids in a single query.
      *
-     * @param clientsSchedule list of ID of the clients.
-     * @return the list of locations
+     * @param ids the ids of the clients
+     * @return the clients found, by id
      */
-    public List<List<Double>> getClientsLocations(List<Client> clientsSchedule) {
-        return clientsSchedule.stream()
-                .map(client -> Arrays.asList(client.getLatHomeAddress(), client.getLongHomeAddress()))
-                .toList();
+    public Map<Integer, Client> findAllById(Collection<Integer> ids) {
+        return clientRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Client::getId, Function.identity()));
+    }
+
+    /**
+     * Get the clients with the given ids that belong to the connected salesman.
+     * <p>
+     * The clients already in the {@link ClientViewCache} aren't read again,
+     * the other ones are read in a single query filtered on the salesman.
+     * The clients that don't exist anymore or belong to another salesman are skipped.
+     *
+     * @param ids      the ids of the clients
+     * @param salesman the connected salesman
+     * @return the clients found, in the order of the ids
+     */
+    public List<ClientView> findAllViewsByIdAndConnectedSalesman(List<Integer> ids, Salesman salesman) {
+        Map<Integer, ClientView> clientsById = new HashMap<>(ids.size());
+        List<Integer> missingIds = new ArrayList<>();
+        for (Integer id : ids) {
+            ClientView client = clientViewCache.get(id);
+            if (client == null) {
+                missingIds.add(id);
+            } else if (client.salesmanId().equals(salesman.getId())) {
+                clientsById.put(id, client);
+            }
+        }
+        if (!missingIds.isEmpty()) {
+            for (ClientView client : clientRepository.findAllViewsByIdInAndSalesmanId(missingIds, salesman.getId())) {
+                clientViewCache.put(client);
+                clientsById.put(client.id(), client);
+            }
+        }
+
+        List<ClientView> orderedClients = new ArrayList<>(clientsById.size());
+        for (Integer id : ids) {
+            ClientView client = clientsById.get(id);
+            if (client != null) {
+                orderedClients.add(client);
+            }
+        }
+        return orderedClients;
     }
 
     /**
@@ -0,0 +1,74 @@
+/*
+ * ClientViewCache.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.clients.service;
+
+import fr.iut.pathpilotapi.LruCache;
+import fr.iut.pathpilotapi.clients.dto.ClientView;
+import fr.iut.pathpilotapi.clients.event.ClientDeletedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * In memory cache of the clients sent to the salesmen with their nearby prospects.
+ * <p>
+ * A client can't be modified, so it stays in the cache until it's deleted.
+ * When the cache is full, the least recently used client is evicted.
+ */
+@Component
+public class ClientViewCache {
+
+    private final LruCache<Integer, ClientView> clients;
+
+    public ClientViewCache(@Value("${pathpilot.clients.cache.max-clients:10000}") int maxSize) {
+        this.clients = new LruCache<>(maxSize);
+    }
+
+    /**
+     * Get a client from the cache.
+     *
+     * @param id the client ID
+     * @return the client, or null if it isn't in the cache
+     */
+    public ClientView get(Integer id) {
+        return clients.get(id);
+    }
+
+    /**
+     * Add a client to the cache, or replace it if it's already in.
+     *
+     * @param client the client
+     */
+    public void put(ClientView client) {
+        clients.put(client.id(), client);
+    }
+
+    /**
+     * Remove a client from the cache.
+     *
+     * @param id the client ID
+     */
+    public void remove(Integer id) {
+        clients.remove(id);
+    }
+
+    /**
+     * Remove the deleted client from the cache.
+     *
+     * @param event the client deleted
+     */
+    @EventListener
+    public void onClientDeleted(ClientDeletedEvent event) {
+        remove(event.client().getId());
+    }
+
+    /**
+     * @return the number of clients in the cache
+     */
+    public int size() {
+        return clients.size();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * DocumentVersionMigration.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.config;
+
+import fr.iut.pathpilotapi.itineraries.Itinerary;
+import fr.iut.pathpilotapi.routes.Route;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Give a version to the routes and the itineraries stored before they were versioned.
+ * <p>
+ * Spring Data considers a document without version as new, so saving it would insert it again
+ * and fail on its ID instead of updating it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentVersionMigration implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Run once the beans are created, before the web server starts, so no request saves a document without version.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        addMissingVersions();
+    }
+
+    public void addMissingVersions() {
+        for (Class<?> documentClass : List.of(Route.class, Itinerary.class)) {
+            long modified = mongoTemplate.updateMulti(query(where("version").exists(false)),
+                    new Update().set("version", 0L), documentClass).getModifiedCount();
+            if (modified > 0) {
+                log.info("Added a version to {} documents of {}", modified, documentClass.getSimpleName());
+            }
+        }
+    }
+}
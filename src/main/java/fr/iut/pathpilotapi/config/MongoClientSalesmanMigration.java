@@ -0,0 +1,71 @@
+/*
+ * MongoClientSalesmanMigration.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.config;
+
+import fr.iut.pathpilotapi.clients.entity.Client;
+import fr.iut.pathpilotapi.clients.entity.MongoClient;
+import fr.iut.pathpilotapi.clients.repository.ClientRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Give the ID of their salesman to the prospects stored in MongoDB before it was copied there.
+ * <p>
+ * The nearby prospects are filtered on their salesman by MongoDB,
+ * so a prospect without salesman would never be found again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MongoClientSalesmanMigration implements SmartInitializingSingleton {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final ClientRepository clientRepository;
+
+    /**
+     * Run before the web server starts, so the first nearby prospects asked already include the old ones.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        addMissingSalesmen();
+    }
+
+    public void addMissingSalesmen() {
+        Query withoutSalesman = query(where("salesmanId").exists(false));
+        withoutSalesman.fields().include("id");
+        List<Integer> ids = mongoTemplate.find(withoutSalesman, MongoClient.class).stream()
+                .map(MongoClient::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        // One update per salesman, with the IDs of all his prospects
+        Map<Integer, List<Integer>> idsBySalesman = clientRepository.findAllById(ids).stream()
+                .filter(client -> client.getSalesman() != null)
+                .collect(Collectors.groupingBy(client -> client.getSalesman().getId(),
+                        Collectors.mapping(Client::getId, Collectors.toList())));
+        long modified = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : idsBySalesman.entrySet()) {
+            modified += mongoTemplate.updateMulti(query(where("id").in(entry.getValue())),
+                    new Update().set("salesmanId", entry.getKey()), MongoClient.class).getModifiedCount();
+        }
+        log.info("Added a salesman to {} of the {} prospects without one", modified, ids.size());
+    }
+}
@@ -5,14 +5,26 @@
 
 package fr.iut.pathpilotapi.config;
 
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class ORSWebClientConfig {
-    private static final String API_BASE_URL = "https://api.openrouteservice.org/v2";
+    /**
+     * Base URL of the OpenRouteService API, e.g. a local stand-in with the {@code ors-stub} profile
+     */
+    @Value("${openrouteservice.base-url:https://api.openrouteservice.org/v2}")
+    private String baseUrl;
 
     /**
      * API_KEY is the key to access the OpenRouteService API
@@ -23,10 +35,71 @@ public class ORSWebClientConfig {
     @Value("${openrouteservice.api-key}")
     private String API_KEY;
 
+    /**
+     * Max duration to open a connection to OpenRouteService
+     */
+    @Value("${pathpilot.ors.connect-timeout:2s}")
+    private Duration connectTimeout;
+
+    /**
+     * Max duration to wait for the response of OpenRouteService once the request is sent
+     */
+    @Value("${pathpilot.ors.response-timeout:10s}")
+    private Duration responseTimeout;
+
+    /**
+     * Pool of the connections to OpenRouteService, reused between the requests to avoid the TCP and TLS handshakes.
+     * <p>
+     * The idle connections are closed before OpenRouteService closes them,
+     * so a request never gets a connection closed by the server.
+     *
+     * @return the connection pool
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider oRSConnectionProvider(
+            @Value("${pathpilot.ors.pool.max-connections:50}") int maxConnections,
+            @Value("${pathpilot.ors.pool.pending-acquire-max-count:200}") int pendingAcquireMaxCount,
+            @Value("${pathpilot.ors.pool.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${pathpilot.ors.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${pathpilot.ors.pool.max-life-time:5m}") Duration maxLifeTime,
+            @Value("${pathpilot.ors.pool.evict-interval:30s}") Duration evictInterval
+    ) {
+        return ConnectionProvider.builder("ors")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInterval)
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Max size of a response of OpenRouteService, a response is buffered before being read
+     */
+    @Value("${pathpilot.ors.max-response-size:4MB}")
+    private DataSize maxResponseSize;
+
     @Bean
-    public WebClient oRSWebClient(WebClient.Builder builder) {
+    public WebClient oRSWebClient(WebClient.Builder builder, ConnectionProvider oRSConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(oRSConnectionProvider)
+                // HTTP/2 multiplexes the requests on a single connection, HTTP/1.1 is used if the server doesn't support it.
+                // HTTP/2 needs TLS, so a local server without TLS is called in HTTP/1.1
+                .protocol(baseUrl.startsWith("https") ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                        : new HttpProtocol[]{HttpProtocol.HTTP11})
+                // Ask for a gzip response, the matrices are large JSON documents
+                .compress(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                // The profile is in the path, so the URIs are grouped to keep a few metrics
+                .metrics(true, uri -> uri.contains("/matrix/") ? "/matrix/{profile}" : uri);
+
         return builder
-                .baseUrl(API_BASE_URL)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize((int) maxResponseSize.toBytes()))
+                .baseUrl(baseUrl)
                 .defaultHeader("Authorization", "Bearer " + API_KEY)
                 .defaultHeader("Content-Type", "application/json").build();
     }
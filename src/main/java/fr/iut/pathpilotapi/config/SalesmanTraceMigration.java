@@ -0,0 +1,109 @@
+/*
+ * SalesmanTraceMigration.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.config;
+
+import fr.iut.pathpilotapi.GeoCord;
+import fr.iut.pathpilotapi.routes.Route;
+import fr.iut.pathpilotapi.routes.position.SalesmanPosition;
+import fr.iut.pathpilotapi.routes.position.SalesmanPositionStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Move the GPS traces stored in the route documents to the {@link SalesmanPositionStore}.
+ * <p>
+ * The routes created before the store kept their trace in a {@value #LEGACY_TRACE} line string,
+ * without timestamps. Its points are given the start date of the route, one millisecond apart to keep their order,
+ * then the line string is removed from the route.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SalesmanTraceMigration implements SmartInitializingSingleton {
+
+    /**
+     * Field of the trace in the route documents
+     */
+    static final String LEGACY_TRACE = "salesman_positions";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final SalesmanPositionStore salesmanPositionStore;
+
+    /**
+     * Run before the web server starts, so a trace is never read while it's still in the route.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        moveTraces();
+    }
+
+    public void moveTraces() {
+        Query withTrace = query(where(LEGACY_TRACE).exists(true));
+        withTrace.fields().include("_id", "salesmanId", "startDate", LEGACY_TRACE);
+        String collection = mongoTemplate.getCollectionName(Route.class);
+
+        // The positions must go to the time-series collection, not to a regular one created by the insert
+        salesmanPositionStore.ensureCollection();
+
+        int routes = 0;
+        int positions = 0;
+        try (Stream<Document> documents = mongoTemplate.stream(withTrace, Document.class, collection)) {
+            for (Document route : (Iterable<Document>) documents::iterator) {
+                List<SalesmanPosition> trace = toPositions(route);
+                // A run stopped before the trace was unset left some of its positions, they are inserted again
+                salesmanPositionStore.deleteAllByRouteId(route.get("_id").toString());
+                if (!trace.isEmpty()) {
+                    salesmanPositionStore.insertAll(trace);
+                }
+                mongoTemplate.updateFirst(query(where("_id").is(route.get("_id"))),
+                        new Update().unset(LEGACY_TRACE), collection);
+                routes++;
+                positions += trace.size();
+            }
+        }
+        if (routes > 0) {
+            log.info("Moved {} positions of {} routes to the collection {}", positions, routes, SalesmanPositionStore.COLLECTION);
+        }
+    }
+
+    private static List<SalesmanPosition> toPositions(Document route) {
+        String routeId = route.get("_id").toString();
+        Integer salesmanId = route.getInteger("salesmanId");
+        Date startDate = route.getDate("startDate");
+        // A route without start date was never started, its trace is empty in practice
+        Instant start = startDate == null ? Instant.EPOCH : startDate.toInstant();
+
+        Document trace = route.get(LEGACY_TRACE, Document.class);
+        List<?> coordinates = trace == null ? null : trace.getList("coordinates", Object.class);
+        List<SalesmanPosition> positions = new ArrayList<>();
+        if (coordinates == null) {
+            return positions;
+        }
+        for (int i = 0; i < coordinates.size(); i++) {
+            // GeoJSON puts the longitude first
+            List<?> point = (List<?>) coordinates.get(i);
+            GeoCord position = new GeoCord(((Number) point.get(1)).doubleValue(), ((Number) point.get(0)).doubleValue());
+            positions.add(SalesmanPosition.of(routeId, salesmanId, position, start.plusMillis(i)));
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * SolverSchedulerConfig.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Configuration of the threads computing the best path of the itineraries.
+ * <p>
+ * The requests are handled by virtual threads, which are made to wait for I/O, not to compute.
+ * So the algorithms run on a bounded pool of platform threads (one per processor by default),
+ * and the solves waiting for a thread are queued.
+ */
+@Configuration
+public class SolverSchedulerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler solverScheduler(
+            @Value("${pathpilot.solver.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${pathpilot.solver.queue-size:1000}") int queueSize
+    ) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "solver");
+    }
+}
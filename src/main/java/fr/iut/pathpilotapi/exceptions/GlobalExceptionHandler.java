@@ -4,6 +4,7 @@ import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.security.SignatureException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.security.access.AccessDeniedException;
@@ -15,6 +16,7 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.servlet.resource.NoResourceFoundException;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestControllerAdvice
@@ -56,6 +58,20 @@ public class GlobalExceptionHandler {
         return createProblemDetail(HttpStatus.CONFLICT, exception.getMessage(), "The email is already taken");
     }
 
+    @ExceptionHandler(RouteStateException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ProblemDetail handleRouteState(RouteStateException exception) {
+        LOG.error("Conflict: {}", exception.getMessage());
+        return createProblemDetail(HttpStatus.CONFLICT, exception.getMessage(), "The route can't go to this state from its current one");
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ProblemDetail handleOptimisticLockingFailure(OptimisticLockingFailureException exception) {
+        LOG.error("Conflict: {}", exception.getMessage());
+        return createProblemDetail(HttpStatus.CONFLICT, exception.getMessage(), "The object was modified at the same time, read it again and retry");
+    }
+
     @ExceptionHandler({
             UserNotFoundException.class,
             ObjectNotFoundException.class,
@@ -93,6 +109,13 @@ public class GlobalExceptionHandler {
         return createProblemDetail(HttpStatus.BAD_REQUEST, "Validation failed", description);
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ProblemDetail handleRejectedExecution(RejectedExecutionException exception) {
+        LOG.error("Service unavailable: {}", exception.getMessage());
+        return createProblemDetail(HttpStatus.SERVICE_UNAVAILABLE, exception.getMessage(), "Too many itineraries are being computed, try again later");
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ProblemDetail handleGenericException(Exception exception) {
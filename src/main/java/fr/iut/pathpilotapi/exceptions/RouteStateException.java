@@ -0,0 +1,16 @@
+/*
+ * RouteStateException.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.exceptions;
+
+/**
+ * Exception thrown when a route can't go to a state from its current one, e.g. pausing a stopped route.
+ */
+public class RouteStateException extends IllegalArgumentException {
+
+    public RouteStateException(String message) {
+        super(message);
+    }
+}
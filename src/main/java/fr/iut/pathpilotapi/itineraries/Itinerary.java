@@ -11,6 +11,7 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
@@ -37,6 +38,12 @@ public class Itinerary {
     @Id
     private String id;
 
+    /**
+     * Version of the document, checked when the itinerary is saved or deleted
+     */
+    @Version
+    private Long version;
+
     /**
      * The salesman ID (keep it in camelCase, else SpringFramework will not be able to map the field correctly)
      */
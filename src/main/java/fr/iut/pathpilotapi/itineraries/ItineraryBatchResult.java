@@ -0,0 +1,28 @@
+/*
+ * ItineraryBatchResult.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries;
+
+/**
+ * Result of an itinerary of a batch, either created or failed.
+ *
+ * @param itinerary the created itinerary, null if it failed
+ * @param error     the reason of the failure, null if it's created
+ * @see ItineraryService#planItineraries(java.util.List, fr.iut.pathpilotapi.salesman.Salesman, boolean)
+ */
+public record ItineraryBatchResult(Itinerary itinerary, String error) {
+
+    public static ItineraryBatchResult created(Itinerary itinerary) {
+        return new ItineraryBatchResult(itinerary, null);
+    }
+
+    public static ItineraryBatchResult failed(String error) {
+        return new ItineraryBatchResult(null, error);
+    }
+
+    public boolean isCreated() {
+        return itinerary != null;
+    }
+}
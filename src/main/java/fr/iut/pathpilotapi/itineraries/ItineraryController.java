@@ -6,12 +6,15 @@
 package fr.iut.pathpilotapi.itineraries;
 
 import fr.iut.pathpilotapi.Status;
-import fr.iut.pathpilotapi.clients.entity.Client;
-import fr.iut.pathpilotapi.clients.repository.ClientRepository;
+import fr.iut.pathpilotapi.itineraries.dto.ItineraryBatchItemResponseModel;
+import fr.iut.pathpilotapi.itineraries.dto.ItineraryBatchRequestModel;
 import fr.iut.pathpilotapi.itineraries.dto.ItineraryPagedModelAssembler;
 import fr.iut.pathpilotapi.itineraries.dto.ItineraryRequestModel;
 import fr.iut.pathpilotapi.itineraries.dto.ItineraryResponseModel;
 import fr.iut.pathpilotapi.itineraries.dto.ItineraryResponseModelAssembler;
+import fr.iut.pathpilotapi.itineraries.dto.PlanningJobResponseModel;
+import fr.iut.pathpilotapi.itineraries.jobs.PlanningJob;
+import fr.iut.pathpilotapi.itineraries.jobs.PlanningJobService;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import fr.iut.pathpilotapi.security.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
@@ -29,9 +32,12 @@ import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
@@ -50,7 +56,7 @@ public class ItineraryController {
 
     private final ItineraryPagedModelAssembler itineraryPagedModelAssembler;
 
-    private final ClientRepository clientRepository;
+    private final PlanningJobService planningJobService;
 
     @Operation(
             summary = "Add a new itinerary",
@@ -62,27 +68,148 @@ public class ItineraryController {
                                     mediaType = "application/json",
                                     schema = @Schema(implementation = Itinerary.class)
                             )),
+                    @ApiResponse(
+                            responseCode = "202",
+                            description = "The job planning the itinerary in the background, when async is true",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = PlanningJobResponseModel.class)
+                            )),
                     @ApiResponse(responseCode = "400", description = "client error"),
-                    @ApiResponse(responseCode = "500", description = "Server error")
+                    @ApiResponse(responseCode = "500", description = "Server error"),
+                    @ApiResponse(responseCode = "503", description = "Too many itineraries are being planned")
             }
     )
     @PostMapping
-    public ResponseEntity<EntityModel<ItineraryResponseModel>> addItinerary(
+    public ResponseEntity<EntityModel<?>> addItinerary(
             @Parameter(name = "itinerary", description = "The itinerary information needed to create one")
-            @RequestBody @Valid ItineraryRequestModel itinerary
+            @RequestBody @Valid ItineraryRequestModel itinerary,
+
+            @Parameter(name = "estimated", description = "If true, the itinerary is optimised immediately with estimated distances instead of the road distances")
+            @RequestParam(defaultValue = "false") boolean estimated,
+
+            @Parameter(name = "async", description = "If true, the itinerary is planned in the background and a job to follow is returned")
+            @RequestParam(defaultValue = "false") boolean async
     ) {
         log.info("Creating itinerary with clients: {}", itinerary.getClients_schedule());
-        List<Client> clients = clientRepository.findAllById(itinerary.getClients_schedule());
-
         Salesman salesman = SecurityUtils.getCurrentSalesman();
 
-        List<List<Double>> matrixDistances = itineraryService.getDistances(clients, "driving-car", salesman).block();
-        Itinerary createdItinerary = itineraryService.createItinerary(itinerary, salesman, matrixDistances);
+        if (async) {
+            PlanningJob job = planningJobService.submit(itinerary, salesman, estimated);
+            EntityModel<PlanningJobResponseModel> jobModel = toModel(job);
+            return ResponseEntity.accepted()
+                    .location(jobModel.getRequiredLink("self").toUri())
+                    .body(jobModel);
+        }
+
+        Itinerary createdItinerary = itineraryService.planItinerary(itinerary, salesman, estimated);
         ItineraryResponseModel itineraryResponseModel = itineraryResponseModelAssembler.toModel(createdItinerary);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(EntityModel.of(itineraryResponseModel));
     }
 
+    @Operation(
+            summary = "Add several itineraries at once",
+            description = "The itineraries share the distance requests and are optimised in parallel. "
+                    + "An invalid itinerary doesn't prevent the creation of the others.",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "The result of each itinerary, in the order of the request",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = ItineraryBatchItemResponseModel.class)
+                            )),
+                    @ApiResponse(responseCode = "400", description = "client error"),
+                    @ApiResponse(responseCode = "500", description = "Server error"),
+                    @ApiResponse(responseCode = "503", description = "Too many itineraries are being planned")
+            }
+    )
+    @PostMapping("/batch")
+    public ResponseEntity<CollectionModel<ItineraryBatchItemResponseModel>> addItineraries(
+            @Parameter(name = "batch", description = "The itineraries to create")
+            @RequestBody @Valid ItineraryBatchRequestModel batch,
+
+            @Parameter(name = "estimated", description = "If true, the itineraries are optimised immediately with estimated distances instead of the road distances")
+            @RequestParam(defaultValue = "false") boolean estimated
+    ) {
+        log.info("Creating a batch of {} itineraries", batch.getItineraries().size());
+        Salesman salesman = SecurityUtils.getCurrentSalesman();
+
+        List<ItineraryBatchResult> results = itineraryService.planItineraries(batch.getItineraries(), salesman, estimated);
+
+        List<ItineraryBatchItemResponseModel> items = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            ItineraryBatchResult result = results.get(i);
+            items.add(new ItineraryBatchItemResponseModel(i,
+                    result.isCreated() ? itineraryResponseModelAssembler.toModel(result.itinerary()) : null,
+                    result.error()));
+        }
+        return ResponseEntity.ok(CollectionModel.of(items));
+    }
+
+    @Operation(
+            summary = "Get an itinerary planning job",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "The state of the job",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = PlanningJobResponseModel.class)
+                            )),
+                    @ApiResponse(responseCode = "400", description = "Client error"),
+                    @ApiResponse(responseCode = "404", description = "The job doesn't exist or has expired"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<EntityModel<PlanningJobResponseModel>> getPlanningJob(
+            @Parameter(name = "jobId", description = "The job id")
+            @PathVariable String jobId
+    ) {
+        Salesman salesman = SecurityUtils.getCurrentSalesman();
+
+        PlanningJob job = planningJobService.findByIdAndConnectedSalesman(jobId, salesman);
+
+        return ResponseEntity.ok(toModel(job));
+    }
+
+    @Operation(
+            summary = "Follow an itinerary planning job",
+            description = "Server-Sent Events stream: 'progress' events with the best distance so far, then a 'done' or 'failed' event",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The stream of the job events"),
+                    @ApiResponse(responseCode = "400", description = "Client error"),
+                    @ApiResponse(responseCode = "404", description = "The job doesn't exist or has expired"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter followPlanningJob(
+            @Parameter(name = "jobId", description = "The job id")
+            @PathVariable String jobId
+    ) {
+        Salesman salesman = SecurityUtils.getCurrentSalesman();
+        return planningJobService.subscribe(jobId, salesman);
+    }
+
+    /**
+     * Convert a job to its representation, with the links to follow it and to the created itinerary.
+     *
+     * @param job the job
+     * @return the representation of the job
+     */
+    private static EntityModel<PlanningJobResponseModel> toModel(PlanningJob job) {
+        EntityModel<PlanningJobResponseModel> model = EntityModel.of(new PlanningJobResponseModel(job),
+                linkTo(methodOn(ItineraryController.class).getPlanningJob(job.getId())).withSelfRel(),
+                linkTo(methodOn(ItineraryController.class).followPlanningJob(job.getId())).withRel("events"));
+        if (job.getItineraryId() != null) {
+            model.add(linkTo(methodOn(ItineraryController.class).getItinerary(job.getItineraryId())).withRel("itinerary"));
+        }
+        return model;
+    }
+
     @Operation(
             summary = "Get an itinerary",
             responses = {
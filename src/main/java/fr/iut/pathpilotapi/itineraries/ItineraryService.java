@@ -5,6 +5,7 @@
 
 package fr.iut.pathpilotapi.itineraries;
 
+import fr.iut.pathpilotapi.GeoCord;
 import fr.iut.pathpilotapi.algorithm.Algorithm;
 import fr.iut.pathpilotapi.algorithm.BruteForce;
 import fr.iut.pathpilotapi.clients.entity.Client;
@@ -13,21 +14,25 @@ import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
 import fr.iut.pathpilotapi.exceptions.SalesmanBelongingException;
 import fr.iut.pathpilotapi.itineraries.dto.ClientDTO;
 import fr.iut.pathpilotapi.itineraries.dto.ItineraryRequestModel;
-import fr.iut.pathpilotapi.itineraries.dto.MatrixDistancesResponseModel;
-import fr.iut.pathpilotapi.itineraries.dto.MatrixLocationsRequestModel;
+import fr.iut.pathpilotapi.itineraries.matrix.DistanceMatrix;
+import fr.iut.pathpilotapi.itineraries.matrix.DistanceMatrixService;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Collectors;
 
 
 @Service
@@ -38,13 +43,21 @@ public class ItineraryService {
     public static final String ITINERARY_WITH_ID_NOT_BELONGS_TO_SALESMAN = "Itinerary with ID: %s does not belong to the connected salesman.";
     public static final String ITINERARY_NOT_FOUND = "Itinerary not found with ID: %s";
 
+    /**
+     * Routing profile used to compute the distances of the itineraries
+     */
+    public static final String PROFILE = "driving-car";
+
     private final ItineraryRepository itineraryRepository;
 
     private final ClientService clientService;
 
-    private final WebClient oRSWebClient;
+    private final DistanceMatrixService distanceMatrixService;
 
-    private final Algorithm algorithm = new BruteForce();
+    /**
+     * Bounded pool of threads computing the best paths
+     */
+    private final Scheduler solverScheduler;
 
     /**
      * Get all itineraries from the database owned by the salesman
@@ -58,43 +71,200 @@ public class ItineraryService {
     }
 
     /**
-     * Create a new itinerary in the database.
+     * Plan a new itinerary and save it in the database.
+     * <p>
+     * The clients are fetched in a single query, then the distance matrix is built and the best path is computed
+     * on the {@link #solverScheduler}, for the objective of the request (distance, duration or both).
+     * The I/O only make the calling thread wait, it should be a virtual thread (see {@code spring.threads.virtual.enabled}).
      *
      * @param itinerary the itinerary to create
      * @param salesman  who creates the Itinerary
-     * @param distances matrix of the distances between all the clients and the salesman
+     * @param estimated if true, the distances are estimated instead of asked to OpenRouteService
      * @return the newly created Itinerary
+     * @throws ObjectNotFoundException    if a client does not exist
+     * @throws SalesmanBelongingException if a client does not belong to the salesman
      */
-    public Itinerary createItinerary(ItineraryRequestModel itinerary, Salesman salesman, List<List<Double>> distances) {
-        List<ClientDTO> clients = itinerary.getClients_schedule().stream()
-                // If a client isn't found or doesn't belong to the salesman, an exception is throw.
-                // So with that we can be sure the itinerary we want to creat is valid.
-                .map(clientId -> new ClientDTO(clientService.findByIdAndConnectedSalesman(clientId, salesman)))
-                .toList();
+    public Itinerary planItinerary(ItineraryRequestModel itinerary, Salesman salesman, boolean estimated) {
+        return planItinerary(itinerary, salesman, estimated, distance -> {
+        });
+    }
 
-        List<Integer> orderedClientsId = new ArrayList<>();
-        if (!distances.isEmpty()
-                && distances.stream().noneMatch(List::isEmpty)
-                && distances.stream().noneMatch(doubles -> doubles.stream().noneMatch(Objects::nonNull))) {
+    /**
+     * Plan a new itinerary and save it in the database, following the progress of the computation.
+     *
+     * @param itinerary            the itinerary to create
+     * @param salesman             who creates the Itinerary
+     * @param estimated            if true, the distances are estimated instead of asked to OpenRouteService
+     * @param bestDistanceListener notified with the cost of the objective each time a better path is found
+     * @return the newly created Itinerary
+     * @throws ObjectNotFoundException    if a client does not exist
+     * @throws SalesmanBelongingException if a client does not belong to the salesman
+     * @see #planItinerary(ItineraryRequestModel, Salesman, boolean)
+     */
+    public Itinerary planItinerary(ItineraryRequestModel itinerary, Salesman salesman, boolean estimated,
+                                   DoubleConsumer bestDistanceListener) {
+        List<Client> clients = clientService.getAllClients(itinerary.getClients_schedule(), salesman);
+
+        List<GeoCord> locations = getLocations(clients, salesman);
+        DistanceMatrix matrix = estimated
+                ? distanceMatrixService.estimateMatrix(locations)
+                : distanceMatrixService.getMatrix(locations, PROFILE).block();
+
+        List<ClientDTO> clientsDTO = clients.stream().map(ClientDTO::new).toList();
+        return saveItinerary(orderClients(clientsDTO,
+                matrix.costs(itinerary.getObjective(), itinerary.getDurationWeight()), bestDistanceListener), salesman);
+    }
 
-            algorithm.setMatrixLocationsRequest(distances);
-            algorithm.computeBestPath();
-            List<Integer> indexClientBestPath = algorithm.getBestPath();
+    /**
+     * Plan several itineraries at once and save them in the database.
+     * <p>
+     * The clients of all the itineraries are fetched in a single query,
+     * the distance matrices are built together so a leg shared by several itineraries is fetched once,
+     * the best paths are computed in parallel on the {@link #solverScheduler},
+     * then the itineraries are inserted in a single bulk operation.
+     * <br>
+     * An itinerary with an unknown client or a client of another salesman fails without failing the others.
+     *
+     * @param itineraries the itineraries to create
+     * @param salesman    who creates the itineraries
+     * @param estimated   if true, the distances are estimated instead of asked to OpenRouteService
+     * @return the result of each itinerary, in the order of the request
+     * @see DistanceMatrixService#getMatrices(List, String)
+     */
+    public List<ItineraryBatchResult> planItineraries(List<ItineraryRequestModel> itineraries, Salesman salesman,
+                                                      boolean estimated) {
+        Set<Integer> clientIds = itineraries.stream()
+                .flatMap(itinerary -> itinerary.getClients_schedule().stream())
+                .collect(Collectors.toSet());
+        Map<Integer, Client> clientsById = clientService.findAllById(clientIds);
 
-            for (int i : indexClientBestPath) {
-                orderedClientsId.add(clients.get(i - 1).getId());
+        ItineraryBatchResult[] results = new ItineraryBatchResult[itineraries.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        List<List<ClientDTO>> validClients = new ArrayList<>();
+        List<List<GeoCord>> locations = new ArrayList<>();
+        for (int i = 0; i < itineraries.size(); i++) {
+            try {
+                List<Client> clients = clientService.getAllClients(itineraries.get(i).getClients_schedule(), salesman, clientsById);
+                validIndexes.add(i);
+                validClients.add(clients.stream().map(ClientDTO::new).toList());
+                locations.add(getLocations(clients, salesman));
+            } catch (ObjectNotFoundException | SalesmanBelongingException e) {
+                results[i] = ItineraryBatchResult.failed(e.getMessage());
             }
-        } else {
-            for (ClientDTO client : clients) {
-                orderedClientsId.add(client.getId());
+        }
+
+        if (!validIndexes.isEmpty()) {
+            List<DistanceMatrix> matrices = estimated
+                    ? locations.stream().map(distanceMatrixService::estimateMatrix).toList()
+                    : distanceMatrixService.getMatrices(locations, PROFILE).block();
+
+            List<Itinerary> newItineraries = Flux.range(0, validIndexes.size())
+                    .flatMapSequential(k -> {
+                        ItineraryRequestModel itinerary = itineraries.get(validIndexes.get(k));
+                        List<List<Double>> costs = matrices.get(k).costs(itinerary.getObjective(), itinerary.getDurationWeight());
+                        return Mono.fromCallable(() -> computeOrder(validClients.get(k), costs))
+                                .subscribeOn(solverScheduler);
+                    })
+                    .map(clients -> newItinerary(clients, salesman))
+                    .collectList()
+                    .block();
+
+            List<Itinerary> savedItineraries = itineraryRepository.insert(newItineraries);
+            for (int k = 0; k < validIndexes.size(); k++) {
+                results[validIndexes.get(k)] = ItineraryBatchResult.created(savedItineraries.get(k));
             }
         }
+        return List.of(results);
+    }
+
+    /**
+     * Order the clients to visit them with the shortest path.
+     * <p>
+     * If the distances aren't valid, the clients are kept in their order.
+     *
+     * @param clients              the clients to visit
+     * @param distances            matrix of the distances between all the clients and the salesman
+     * @param bestDistanceListener notified with the distance each time a better path is found
+     * @return the clients in the order of the best path
+     */
+    private List<ClientDTO> orderClients(List<ClientDTO> clients, List<List<Double>> distances,
+                                         DoubleConsumer bestDistanceListener) {
+        if (!isValidMatrix(distances)) {
+            return clients;
+        }
+
+        List<Integer> indexClientBestPath = Mono.fromCallable(() -> computeBestPath(distances, bestDistanceListener))
+                .subscribeOn(solverScheduler)
+                .block();
+        return inBestPathOrder(clients, indexClientBestPath);
+    }
 
+    /**
+     * Order the clients to visit them with the shortest path, on the calling thread.
+     *
+     * @param clients   the clients to visit
+     * @param distances matrix of the distances between all the clients and the salesman
+     * @return the clients in the order of the best path, or in their order if the distances aren't valid
+     */
+    private static List<ClientDTO> computeOrder(List<ClientDTO> clients, List<List<Double>> distances) {
+        if (!isValidMatrix(distances)) {
+            return clients;
+        }
+        return inBestPathOrder(clients, computeBestPath(distances, distance -> {
+        }));
+    }
+
+    private static boolean isValidMatrix(List<List<Double>> distances) {
+        return !distances.isEmpty()
+                && distances.stream().noneMatch(List::isEmpty)
+                && distances.stream().allMatch(doubles -> doubles.stream().anyMatch(Objects::nonNull));
+    }
+
+    /**
+     * @param clients             the clients to visit
+     * @param indexClientBestPath the index of the clients in the matrix, in the order of the best path
+     * @return the clients in the order of the best path
+     */
+    private static List<ClientDTO> inBestPathOrder(List<ClientDTO> clients, List<Integer> indexClientBestPath) {
+        List<ClientDTO> orderedClients = new ArrayList<>(clients.size());
+        for (int i : indexClientBestPath) {
+            orderedClients.add(clients.get(i - 1));
+        }
+        return orderedClients;
+    }
+
+    /**
+     * Compute the best path with a new instance of the algorithm, as an algorithm keeps the state of its computation.
+     *
+     * @param distances            matrix of the distances between all the clients and the salesman
+     * @param bestDistanceListener notified with the distance each time a better path is found
+     * @return the index of the clients in the matrix, in the order of the best path
+     */
+    private static List<Integer> computeBestPath(List<List<Double>> distances, DoubleConsumer bestDistanceListener) {
+        Algorithm algorithm = new BruteForce();
+        algorithm.setMatrixLocationsRequest(distances);
+        algorithm.setBestDistanceListener(bestDistanceListener);
+        algorithm.computeBestPath();
+        return algorithm.getBestPath();
+    }
+
+    /**
+     * Save a new itinerary in the database.
+     *
+     * @param clients  the clients in the order to visit them
+     * @param salesman who creates the Itinerary
+     * @return the newly created Itinerary
+     */
+    private Itinerary saveItinerary(List<ClientDTO> clients, Salesman salesman) {
+        return itineraryRepository.save(newItinerary(clients, salesman));
+    }
+
+    private static Itinerary newItinerary(List<ClientDTO> clients, Salesman salesman) {
         Itinerary newItinerary = new Itinerary();
-        newItinerary.setClients_schedule(clientService.getAllClients(orderedClientsId, salesman).stream().map(ClientDTO::new).toList());
+        newItinerary.setClients_schedule(clients);
         newItinerary.setSalesmanId(salesman.getId());
         newItinerary.setSalesman_home(new GeoJsonPoint(salesman.getLongHomeAddress(), salesman.getLatHomeAddress()));
-        return itineraryRepository.save(newItinerary);
+        return newItinerary;
     }
 
     /**
@@ -155,26 +325,19 @@ public class ItineraryService {
     }
 
     /**
+     * Get the locations of the salesman home and the clients.
+     *
      * @param clients  list of clients
-     * @param profile  the profile to use for the matrix
      * @param salesman the salesman
-     * @return
-     */
-    public Mono<List<List<Double>>> getDistances(List<Client> clients, String profile, Salesman salesman) {
-        List<List<Double>> clientsLocations = new ArrayList<>();
-        clientsLocations.add(Arrays.asList(salesman.getLatHomeAddress(), salesman.getLongHomeAddress()));
-        clientsLocations.addAll(clientService.getClientsLocations(clients));
-
-        return oRSWebClient.post()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/matrix/driving-car")
-                        .queryParam("profile", profile)
-                        .build())
-                .bodyValue(new MatrixLocationsRequestModel(clientsLocations, List.of("distance")))
-                .retrieve()
-                .bodyToMono(MatrixDistancesResponseModel.class)
-                .map(MatrixDistancesResponseModel::getDistances)
-                .onErrorResume(e -> Mono.just(new ArrayList<>()));
+     * @return the locations, starting with the salesman home
+     */
+    private static List<GeoCord> getLocations(List<Client> clients, Salesman salesman) {
+        List<GeoCord> locations = new ArrayList<>(clients.size() + 1);
+        locations.add(new GeoCord(salesman.getLatHomeAddress(), salesman.getLongHomeAddress()));
+        for (Client client : clients) {
+            locations.add(new GeoCord(client.getLatHomeAddress(), client.getLongHomeAddress()));
+        }
+        return locations;
     }
 
     /**
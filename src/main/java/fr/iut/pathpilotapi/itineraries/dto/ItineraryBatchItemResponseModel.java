@@ -0,0 +1,40 @@
+/*
+ * ItineraryBatchItemResponseModel.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Result of an itinerary of a batch
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Result of an itinerary of a batch, in the order of the request")
+public class ItineraryBatchItemResponseModel {
+
+    @Schema(description = "Index of the itinerary in the request", example = "0")
+    private int index;
+
+    @Schema(description = "True if the itinerary is created")
+    private boolean created;
+
+    @Schema(description = "The created itinerary")
+    private ItineraryResponseModel itinerary;
+
+    @Schema(description = "Why the itinerary isn't created", example = "Client not found with ID: 3")
+    private String error;
+
+    public ItineraryBatchItemResponseModel(int index, ItineraryResponseModel itinerary, String error) {
+        this.index = index;
+        this.created = itinerary != null;
+        this.itinerary = itinerary;
+        this.error = error;
+    }
+}
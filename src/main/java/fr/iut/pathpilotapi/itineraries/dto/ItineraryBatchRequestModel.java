@@ -0,0 +1,29 @@
+/*
+ * ItineraryBatchRequestModel.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+import static fr.iut.pathpilotapi.Constants.MAX_ITINERARIES_BATCH;
+
+@Getter
+@Setter
+@Schema(description = "Several itineraries to create at once")
+public class ItineraryBatchRequestModel {
+
+    @NotEmpty
+    @Size(max = MAX_ITINERARIES_BATCH)
+    @Schema(description = "The itineraries to create")
+    private List<@Valid @NotNull ItineraryRequestModel> itineraries;
+}
@@ -5,7 +5,10 @@
 
 package fr.iut.pathpilotapi.itineraries.dto;
 
+import fr.iut.pathpilotapi.itineraries.matrix.Objective;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
@@ -25,4 +28,14 @@ public class ItineraryRequestModel {
     @Size(max = MAX_CLIENTS)
     @Schema(description = "List of the clients to visit in the itinerary")
     private List<@NotNull Integer> clients_schedule;
+
+    @NotNull
+    @Schema(description = "What the best path minimises", defaultValue = "DISTANCE")
+    private Objective objective = Objective.DISTANCE;
+
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    @Schema(description = "Weight of the driving time against the distance, only used by the WEIGHTED objective",
+            defaultValue = "0.5")
+    private double durationWeight = 0.5;
 }
@@ -5,16 +5,21 @@
 
 package fr.iut.pathpilotapi.itineraries.dto;
 
+import fr.iut.pathpilotapi.itineraries.matrix.MatrixCells;
 import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.List;
-
 @Setter
 @Getter
 @Schema(description = "All information based on the client and salesman locations")
 public class MatrixDistancesResponseModel {
+    /**
+     * The distances are read directly into a primitive array, as a matrix can have thousands of cells
+     */
     @Schema(description = "The matrix of distances enter all the clients and the salesman")
-    private List<List<Double>> distances;
+    private MatrixCells distances;
+
+    @Schema(description = "The matrix of durations enter all the clients and the salesman")
+    private MatrixCells durations;
 }
\ No newline at end of file
@@ -5,6 +5,7 @@
 
 package fr.iut.pathpilotapi.itineraries.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
@@ -18,12 +19,14 @@ import static fr.iut.pathpilotapi.Constants.MAX_CLIENTS;
 
 @Setter
 @Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Schema(description = "The matrix of locations represent the clients and the salesman locations")
 public class MatrixLocationsRequestModel {
 
     @NotNull
     @NotEmpty
     @Size(max = MAX_CLIENTS + 1) // The clients and +1 for the salesman
+    @Schema(description = "The locations as [longitude, latitude]")
     private List<List<Double>> locations;
 
     @NotNull
@@ -31,6 +34,12 @@ public class MatrixLocationsRequestModel {
     @Schema(description = "Specifies the matrix type (e.g., distance or duration)")
     private List<String> metrics;
 
+    @Schema(description = "Index of the locations to use as sources, all the locations if null")
+    private List<Integer> sources;
+
+    @Schema(description = "Index of the locations to use as destinations, all the locations if null")
+    private List<Integer> destinations;
+
     public MatrixLocationsRequestModel(List<List<Double>> locations, List<String> metrics) {
         this.locations = locations;
         this.metrics = metrics;
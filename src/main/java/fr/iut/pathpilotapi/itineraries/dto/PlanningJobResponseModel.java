@@ -0,0 +1,54 @@
+/*
+ * PlanningJobResponseModel.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.dto;
+
+import fr.iut.pathpilotapi.itineraries.jobs.JobStatus;
+import fr.iut.pathpilotapi.itineraries.jobs.PlanningJob;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Class representing the state of an itinerary planning job
+ */
+@Getter
+@Setter
+@Schema(description = "State of an itinerary planned in the background")
+public class PlanningJobResponseModel {
+
+    @Schema(description = "Unique identifier of the job", example = "3f2b8c1e-7a4d-4f7e-9c3a-1b2d3e4f5a6b")
+    private String id;
+
+    @Schema(description = "Status of the job", example = "RUNNING")
+    private JobStatus status;
+
+    @Schema(description = "Distance of the best path found so far, in meters", example = "12500.0")
+    private Double bestDistance;
+
+    @Schema(description = "ID of the created itinerary, when the job is done")
+    private String itineraryId;
+
+    @Schema(description = "Why the itinerary can't be created, when the job failed")
+    private String error;
+
+    @Schema(description = "Date when the job was submitted")
+    private Instant createdAt;
+
+    @Schema(description = "Date when the job finished")
+    private Instant finishedAt;
+
+    public PlanningJobResponseModel(PlanningJob job) {
+        this.id = job.getId();
+        this.status = job.getStatus();
+        this.bestDistance = job.getBestDistance();
+        this.itineraryId = job.getItineraryId();
+        this.error = job.getError();
+        this.createdAt = job.getCreatedAt();
+        this.finishedAt = job.getFinishedAt();
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * JobStatus.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.jobs;
+
+/**
+ * Status of an itinerary planning job
+ */
+public enum JobStatus {
+    /**
+     * The job is waiting for a worker
+     */
+    PENDING,
+    /**
+     * The distances are fetched or the best path is computed
+     */
+    RUNNING,
+    /**
+     * The itinerary is created
+     */
+    DONE,
+    /**
+     * The itinerary can't be created
+     */
+    FAILED;
+
+    /**
+     * @return true if the job won't change anymore
+     */
+    public boolean isFinished() {
+        return this == DONE || this == FAILED;
+    }
+}
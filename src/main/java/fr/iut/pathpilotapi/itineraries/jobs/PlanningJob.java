@@ -0,0 +1,96 @@
+/*
+ * PlanningJob.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.jobs;
+
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Itinerary planned in the background.
+ * <p>
+ * The job is updated by the worker planning the itinerary and read by the requests following it,
+ * so its state is volatile.
+ */
+@Getter
+public class PlanningJob {
+
+    private final String id = UUID.randomUUID().toString();
+
+    /**
+     * The salesman who submitted the job
+     */
+    private final Integer salesmanId;
+
+    private final Instant createdAt = Instant.now();
+
+    private volatile JobStatus status = JobStatus.PENDING;
+
+    /**
+     * Distance of the best path found so far, in meters
+     */
+    private volatile Double bestDistance;
+
+    /**
+     * ID of the created itinerary, when the job is done
+     */
+    private volatile String itineraryId;
+
+    /**
+     * Why the itinerary can't be created, when the job failed
+     */
+    private volatile String error;
+
+    private volatile Instant finishedAt;
+
+    /**
+     * The streams following the progress of the job
+     */
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    /**
+     * Held while events are sent to the streams, so a stream added while the job finishes gets its last event once.
+     * It's a lock rather than a synchronized block, because sending an event blocks and would pin a virtual thread.
+     */
+    private final ReentrantLock eventsLock = new ReentrantLock();
+
+    public PlanningJob(Integer salesmanId) {
+        this.salesmanId = salesmanId;
+    }
+
+    void start() {
+        status = JobStatus.RUNNING;
+    }
+
+    void updateBestDistance(double bestDistance) {
+        this.bestDistance = bestDistance;
+    }
+
+    void succeed(String itineraryId) {
+        this.itineraryId = itineraryId;
+        finishedAt = Instant.now();
+        status = JobStatus.DONE;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = JobStatus.FAILED;
+    }
+
+    List<SseEmitter> getEmitters() {
+        return emitters;
+    }
+
+    ReentrantLock getEventsLock() {
+        return eventsLock;
+    }
+}
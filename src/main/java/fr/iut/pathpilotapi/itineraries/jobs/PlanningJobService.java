@@ -0,0 +1,248 @@
+/*
+ * PlanningJobService.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.jobs;
+
+import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
+import fr.iut.pathpilotapi.exceptions.SalesmanBelongingException;
+import fr.iut.pathpilotapi.itineraries.Itinerary;
+import fr.iut.pathpilotapi.itineraries.ItineraryService;
+import fr.iut.pathpilotapi.itineraries.dto.ItineraryRequestModel;
+import fr.iut.pathpilotapi.itineraries.dto.PlanningJobResponseModel;
+import fr.iut.pathpilotapi.salesman.Salesman;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Service planning itineraries in the background.
+ * <p>
+ * The jobs are queued and run by a fixed number of workers.
+ * Their progress can be polled, or followed with Server-Sent Events.
+ * The jobs are kept in memory, and removed some time after they finished.
+ */
+@Slf4j
+@Service
+public class PlanningJobService {
+
+    public static final String JOB_NOT_FOUND = "Planning job not found with ID: %s";
+    public static final String JOB_NOT_BELONGS_TO_SALESMAN = "Planning job with ID: %s does not belong to the connected salesman.";
+
+    /**
+     * Time between two checks of the best distance, in milliseconds, so a fast solver doesn't flood the streams
+     */
+    private static final long PROGRESS_INTERVAL = 250;
+
+    private final ItineraryService itineraryService;
+
+    private final Map<String, PlanningJob> jobs = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Time during which a finished job can still be read
+     */
+    private final Duration retention;
+
+    public PlanningJobService(
+            ItineraryService itineraryService,
+            @Value("${pathpilot.jobs.workers:4}") int workers,
+            @Value("${pathpilot.jobs.queue-size:100}") int queueSize,
+            @Value("${pathpilot.jobs.retention:1h}") Duration retention
+    ) {
+        this.itineraryService = itineraryService;
+        this.retention = retention;
+        // The jobs mostly wait for OpenRouteService and the solver threads, so the workers are virtual threads
+        this.workers = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), Thread.ofVirtual().name("planning-job-", 0).factory());
+    }
+
+    /**
+     * Submit an itinerary to plan in the background.
+     *
+     * @param itinerary the itinerary to create
+     * @param salesman  who creates the itinerary
+     * @param estimated if true, the distances are estimated instead of asked to OpenRouteService
+     * @return the job planning the itinerary
+     * @throws java.util.concurrent.RejectedExecutionException if too many jobs are waiting
+     */
+    public PlanningJob submit(ItineraryRequestModel itinerary, Salesman salesman, boolean estimated) {
+        removeExpiredJobs();
+
+        PlanningJob job = new PlanningJob(salesman.getId());
+        jobs.put(job.getId(), job);
+        try {
+            workers.execute(() -> run(job, itinerary, salesman, estimated));
+        } catch (RuntimeException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Get a job by its id and the connected salesman
+     *
+     * @param id       the id of the job
+     * @param salesman the connected salesman
+     * @return the job
+     * @throws ObjectNotFoundException    if the job is not found
+     * @throws SalesmanBelongingException if the job does not belong to the salesman
+     */
+    public PlanningJob findByIdAndConnectedSalesman(String id, Salesman salesman) {
+        PlanningJob job = jobs.get(id);
+        if (job == null) {
+            throw new ObjectNotFoundException(String.format(JOB_NOT_FOUND, id));
+        }
+        if (!salesman.getId().equals(job.getSalesmanId())) {
+            throw new SalesmanBelongingException(String.format(JOB_NOT_BELONGS_TO_SALESMAN, id));
+        }
+        return job;
+    }
+
+    /**
+     * Follow the progress of a job.
+     * <p>
+     * The current state of the job is sent immediately, then a {@code progress} event is sent when a better path is found,
+     * and a {@code done} or {@code failed} event ends the stream.
+     *
+     * @param id       the id of the job
+     * @param salesman the connected salesman
+     * @return the stream of the events
+     * @throws ObjectNotFoundException    if the job is not found
+     * @throws SalesmanBelongingException if the job does not belong to the salesman
+     */
+    public SseEmitter subscribe(String id, Salesman salesman) {
+        PlanningJob job = findByIdAndConnectedSalesman(id, salesman);
+        SseEmitter emitter = new SseEmitter(retention.toMillis());
+        emitter.onCompletion(() -> job.getEmitters().remove(emitter));
+        emitter.onTimeout(() -> job.getEmitters().remove(emitter));
+        emitter.onError(e -> job.getEmitters().remove(emitter));
+
+        // Under the lock of the last event, so the stream gets it either from here or from the worker, not twice
+        job.getEventsLock().lock();
+        try {
+            send(emitter, job);
+            if (job.getStatus().isFinished()) {
+                emitter.complete();
+            } else {
+                job.getEmitters().add(emitter);
+            }
+        } finally {
+            job.getEventsLock().unlock();
+        }
+        return emitter;
+    }
+
+    /**
+     * Plan the itinerary of a job, and notify the streams following it.
+     * <p>
+     * The itinerary is planned on another virtual thread, and the solver only records the best distance found.
+     * The worker sends the progress events while it waits, so a slow stream never holds up the solver.
+     */
+    private void run(PlanningJob job, ItineraryRequestModel itinerary, Salesman salesman, boolean estimated) {
+        job.start();
+        publish(job);
+        FutureTask<Itinerary> planning = new FutureTask<>(
+                () -> itineraryService.planItinerary(itinerary, salesman, estimated, job::updateBestDistance));
+        Thread.ofVirtual().name("planning-solver-" + job.getId()).start(planning);
+        try {
+            job.succeed(awaitPlanning(job, planning).getId());
+        } catch (RuntimeException e) {
+            log.error("Planning job {} failed: {}", job.getId(), e.getMessage());
+            job.fail(e.getMessage());
+        } catch (InterruptedException e) {
+            // The service is shutting down
+            planning.cancel(true);
+            Thread.currentThread().interrupt();
+            job.fail("The planning was interrupted");
+        }
+        job.getEventsLock().lock();
+        try {
+            publish(job);
+            job.getEmitters().forEach(SseEmitter::complete);
+        } finally {
+            job.getEventsLock().unlock();
+        }
+    }
+
+    /**
+     * Wait for the itinerary of a job, sending a progress event every {@value #PROGRESS_INTERVAL} ms
+     * if a better path was found meanwhile.
+     */
+    private Itinerary awaitPlanning(PlanningJob job, FutureTask<Itinerary> planning) throws InterruptedException {
+        Double publishedDistance = job.getBestDistance();
+        while (true) {
+            try {
+                return planning.get(PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                Double bestDistance = job.getBestDistance();
+                if (!Objects.equals(bestDistance, publishedDistance)) {
+                    publishedDistance = bestDistance;
+                    publish(job);
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Send the state of the job to all the streams following it.
+     */
+    private void publish(PlanningJob job) {
+        job.getEventsLock().lock();
+        try {
+            job.getEmitters().forEach(emitter -> send(emitter, job));
+        } finally {
+            job.getEventsLock().unlock();
+        }
+    }
+
+    private void send(SseEmitter emitter, PlanningJob job) {
+        String eventName = switch (job.getStatus()) {
+            case DONE -> "done";
+            case FAILED -> "failed";
+            default -> "progress";
+        };
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(new PlanningJobResponseModel(job)));
+        } catch (IOException | IllegalStateException e) {
+            // The client is gone
+            job.getEmitters().remove(emitter);
+        }
+    }
+
+    /**
+     * Remove the jobs finished for longer than the retention.
+     */
+    private void removeExpiredJobs() {
+        Instant expiration = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(expiration));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
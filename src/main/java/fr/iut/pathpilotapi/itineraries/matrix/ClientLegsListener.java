@@ -0,0 +1,76 @@
+/*
+ * ClientLegsListener.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+import fr.iut.pathpilotapi.clients.entity.Client;
+import fr.iut.pathpilotapi.clients.event.ClientCreatedEvent;
+import fr.iut.pathpilotapi.clients.service.ClientService;
+import fr.iut.pathpilotapi.itineraries.ItineraryService;
+import fr.iut.pathpilotapi.salesman.Salesman;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Fetch the legs of each salesman in advance when he creates a client.
+ * <p>
+ * When a client is created, only its row and its column of the salesman matrix are fetched, in the background.
+ * So when an itinerary is created, all its legs are already in the {@link LegCache} and the solver starts immediately.
+ * The legs are keyed by location, not by client, so they stay valid when a client is deleted.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "pathpilot.matrix.prefetch.enabled", havingValue = "true", matchIfMissing = true)
+public class ClientLegsListener {
+
+    private final DistanceMatrixService distanceMatrixService;
+
+    private final ClientService clientService;
+
+    /**
+     * Fetch the legs between the new client, the salesman home and the other clients, without blocking the request.
+     *
+     * @param event the client created
+     */
+    @EventListener
+    public void onClientCreated(ClientCreatedEvent event) {
+        GeoCord location = toLocation(event.client());
+        Mono.fromCallable(() -> getOtherLocations(event.client(), event.salesman()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(others -> distanceMatrixService.prefetchLegs(location, others, ItineraryService.PROFILE))
+                .subscribe(null, e -> log.warn("Legs of the client {} can't be prefetched: {}",
+                        event.client().getId(), e.getMessage()));
+    }
+
+    /**
+     * @return the salesman home, then the location of the other clients of the salesman
+     */
+    private List<GeoCord> getOtherLocations(Client client, Salesman salesman) {
+        List<Client> clients = clientService.getAllClientsBySalesman(salesman);
+        List<GeoCord> locations = new ArrayList<>(clients.size() + 1);
+        locations.add(new GeoCord(salesman.getLatHomeAddress(), salesman.getLongHomeAddress()));
+        for (Client other : clients) {
+            if (!Objects.equals(other.getId(), client.getId())) {
+                locations.add(toLocation(other));
+            }
+        }
+        return locations;
+    }
+
+    private static GeoCord toLocation(Client client) {
+        return new GeoCord(client.getLatHomeAddress(), client.getLongHomeAddress());
+    }
+}
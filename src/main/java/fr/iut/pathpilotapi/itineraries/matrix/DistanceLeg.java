@@ -0,0 +1,63 @@
+/*
+ * DistanceLeg.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Leg computed by OpenRouteService, stored in MongoDB
+ * so the legs are shared by all the instances of the API and survive a restart.
+ * <p>
+ * The coordinates are quantised like in {@link LegKey}.
+ * The legs are removed by MongoDB when they are older than the time to live of the {@link LegStore}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Document(collection = LegStore.COLLECTION)
+public class DistanceLeg {
+
+    @Id
+    private String id;
+
+    private String profile;
+
+    private int fromLat;
+
+    private int fromLon;
+
+    private int toLat;
+
+    private int toLon;
+
+    /**
+     * Road distance in meters
+     */
+    private double distance;
+
+    /**
+     * Driving time in seconds, null for the legs stored before the durations were fetched
+     */
+    private Double duration;
+
+    /**
+     * Date when OpenRouteService computed the leg, used by the TTL index
+     */
+    private Date computedAt;
+
+    /**
+     * @return the key of the leg
+     */
+    public LegKey toKey() {
+        return new LegKey(profile, fromLat, fromLon, toLat, toLon);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * DistanceMatrix.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Square matrices of the distances (in meters) and of the driving times (in seconds)
+ * between the salesman and his clients.
+ * <p>
+ * The cells are stored row by row in flat primitive arrays,
+ * so the distance from the location {@code i} to the location {@code j} is at index {@code i * size + j}.
+ * <br>
+ * The index 0 is always the salesman home, the other indexes are the clients in the order of the request.
+ */
+@Getter
+public class DistanceMatrix {
+
+    /**
+     * Number of locations, the matrix contains {@code size * size} cells
+     */
+    private final int size;
+
+    private final double[] distances;
+
+    private final double[] durations;
+
+    /**
+     * Create a matrix from its cells.
+     *
+     * @param size      the number of locations
+     * @param distances the distances, row by row
+     * @param durations the durations, row by row
+     * @throws IllegalArgumentException if the number of cells doesn't match the size
+     */
+    public DistanceMatrix(int size, double[] distances, double[] durations) {
+        if (distances.length != size * size || durations.length != size * size) {
+            throw new IllegalArgumentException("A matrix of size " + size + " must have " + size * size + " cells");
+        }
+        this.size = size;
+        this.distances = distances;
+        this.durations = durations;
+    }
+
+    /**
+     * Get the distance between two locations.
+     *
+     * @param from the index of the location we start from
+     * @param to   the index of the location we go to
+     * @return the distance in meters
+     */
+    public double distance(int from, int to) {
+        return distances[from * size + to];
+    }
+
+    /**
+     * Get the driving time between two locations.
+     *
+     * @param from the index of the location we start from
+     * @param to   the index of the location we go to
+     * @return the duration in seconds
+     */
+    public double duration(int from, int to) {
+        return durations[from * size + to];
+    }
+
+    /**
+     * Convert the distances to the format used by the algorithms.
+     *
+     * @return a list of rows
+     */
+    public List<List<Double>> toLists() {
+        return toLists(distances);
+    }
+
+    /**
+     * Get the cost of each leg for an objective, in the format used by the algorithms.
+     * <p>
+     * With the {@link Objective#WEIGHTED} objective, the distances and the durations are divided by their mean,
+     * so they have the same scale whatever their unit, then mixed with the weight of the duration.
+     *
+     * @param objective      what the best path minimises
+     * @param durationWeight the weight of the duration between 0 and 1, only used by the weighted objective
+     * @return a list of rows
+     */
+    public List<List<Double>> costs(Objective objective, double durationWeight) {
+        return switch (objective) {
+            case DISTANCE -> toLists(distances);
+            case DURATION -> toLists(durations);
+            case WEIGHTED -> {
+                double meanDistance = mean(distances);
+                double meanDuration = mean(durations);
+                double[] costs = new double[distances.length];
+                for (int i = 0; i < costs.length; i++) {
+                    costs[i] = (1 - durationWeight) * distances[i] / meanDistance
+                            + durationWeight * durations[i] / meanDuration;
+                }
+                yield toLists(costs);
+            }
+        };
+    }
+
+    /**
+     * @return the mean of the cells, or 1 if they are all 0 (e.g. a single location)
+     */
+    private static double mean(double[] cells) {
+        double sum = 0;
+        for (double cell : cells) {
+            sum += cell;
+        }
+        return sum == 0 ? 1 : sum / cells.length;
+    }
+
+    private List<List<Double>> toLists(double[] cells) {
+        List<List<Double>> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            List<Double> row = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                row.add(cells[i * size + j]);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * DistanceMatrixService.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Service building the distance matrix between the salesman and his clients.
+ * The distances and the durations are fetched and cached together.
+ * <p>
+ * The legs already known are taken from the {@link LegCache}, then from the {@link LegStore},
+ * only the missing ones are asked to OpenRouteService.
+ * If OpenRouteService fails, the distances are estimated by the {@link GreatCircleMatrixEngine}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DistanceMatrixService {
+
+    /**
+     * Max number of requests to fetch the missing legs of a matrix.
+     * Above, a single request with all the sources and destinations concerned is sent.
+     */
+    static final int MAX_MISSING_LEGS_REQUESTS = 4;
+
+    private final ORSMatrixClient orsMatrixClient;
+
+    private final LegCache legCache;
+
+    private final LegStore legStore;
+
+    private final GreatCircleMatrixEngine greatCircleMatrixEngine;
+
+    /**
+     * Get the matrix of the road distances and driving times between all the locations.
+     *
+     * @param locations the locations, the first one should be the salesman home
+     * @param profile   the routing profile (e.g. driving-car)
+     * @return the distance matrix, estimated if OpenRouteService can't give all the distances
+     */
+    public Mono<DistanceMatrix> getMatrix(List<GeoCord> locations, String profile) {
+        int size = locations.size();
+        double[] distances = new double[size * size];
+        double[] durations = new double[size * size];
+        boolean[] missing = new boolean[size * size];
+
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (i != j) {
+                    Leg leg = legCache.get(LegKey.of(profile, locations.get(i), locations.get(j)));
+                    if (leg == null) {
+                        missing[i * size + j] = true;
+                    } else {
+                        distances[i * size + j] = leg.distance();
+                        durations[i * size + j] = leg.duration();
+                    }
+                }
+            }
+        }
+
+        if (!isAnyMissing(missing)) {
+            return Mono.just(new DistanceMatrix(size, distances, durations));
+        }
+
+        return fillMissingLegs(locations, profile, distances, durations, missing)
+                .then(Mono.fromCallable(() -> {
+                    if (isAnyMissing(missing)) {
+                        throw new IllegalStateException("OpenRouteService didn't find a road between some locations");
+                    }
+                    return new DistanceMatrix(size, distances, durations);
+                }))
+                .onErrorResume(e -> {
+                    log.warn("Distance matrix request to OpenRouteService failed, the distances are estimated: {}", e.getMessage());
+                    return Mono.just(estimateMatrix(locations));
+                });
+    }
+
+    /**
+     * Get several matrices at once, e.g. for a batch of itineraries.
+     * <p>
+     * The locations of all the matrices are merged, so the {@link LegStore} is read once,
+     * and a leg shared by several matrices (e.g. from the salesman home) is fetched once.
+     * The matrices are completed one after the other, so a matrix only fetches the legs still missing.
+     *
+     * @param matrices the locations of each matrix
+     * @param profile  the routing profile
+     * @return the matrices, in the same order, estimated if OpenRouteService can't give all their distances
+     */
+    public Mono<List<DistanceMatrix>> getMatrices(List<List<GeoCord>> matrices, String profile) {
+        List<GeoCord> locations = new ArrayList<>();
+        Map<GeoCord, Integer> locationsIndex = new HashMap<>();
+        List<int[]> matricesIndexes = new ArrayList<>(matrices.size());
+        for (List<GeoCord> matrix : matrices) {
+            int[] indexes = new int[matrix.size()];
+            for (int k = 0; k < indexes.length; k++) {
+                indexes[k] = locationsIndex.computeIfAbsent(matrix.get(k), location -> {
+                    locations.add(location);
+                    return locations.size() - 1;
+                });
+            }
+            matricesIndexes.add(indexes);
+        }
+
+        int size = locations.size();
+        double[] distances = new double[size * size];
+        double[] durations = new double[size * size];
+        boolean[] missing = new boolean[size * size];
+
+        // Only the legs inside a matrix are wanted, not the legs between the locations of two matrices
+        for (int[] indexes : matricesIndexes) {
+            for (int from : indexes) {
+                for (int to : indexes) {
+                    if (from == to || missing[from * size + to]) {
+                        continue;
+                    }
+                    Leg leg = legCache.get(LegKey.of(profile, locations.get(from), locations.get(to)));
+                    if (leg == null) {
+                        missing[from * size + to] = true;
+                    } else {
+                        distances[from * size + to] = leg.distance();
+                        durations[from * size + to] = leg.duration();
+                    }
+                }
+            }
+        }
+
+        Mono<Void> fill = isAnyMissing(missing)
+                ? fillMissingLegs(locations, matricesIndexes, profile, distances, durations, missing)
+                : Mono.empty();
+        return fill.then(Mono.fromCallable(() -> {
+            List<DistanceMatrix> result = new ArrayList<>(matrices.size());
+            for (int m = 0; m < matrices.size(); m++) {
+                int[] indexes = matricesIndexes.get(m);
+                if (isAnyMissing(subMask(missing, size, indexes))) {
+                    result.add(estimateMatrix(matrices.get(m)));
+                } else {
+                    result.add(slice(distances, durations, size, indexes));
+                }
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Fetch the legs from a location to the other ones and back, if they aren't known yet.
+     * <p>
+     * Used when a client is created, so only its row and its column are fetched,
+     * and the matrix of the next itinerary is already in the cache.
+     *
+     * @param location the new location
+     * @param others   the other locations, e.g. the salesman home and the other clients
+     * @param profile  the routing profile
+     * @return a Mono completing when the legs are known, or when OpenRouteService failed
+     */
+    public Mono<Void> prefetchLegs(GeoCord location, List<GeoCord> others, String profile) {
+        List<GeoCord> locations = new ArrayList<>(others.size() + 1);
+        locations.add(location);
+        locations.addAll(others);
+        int size = locations.size();
+        double[] distances = new double[size * size];
+        double[] durations = new double[size * size];
+        boolean[] missing = new boolean[size * size];
+
+        // Only the first row and the first column are wanted
+        for (int i = 1; i < size; i++) {
+            missing[i] = legCache.get(LegKey.of(profile, location, locations.get(i))) == null;
+            missing[i * size] = legCache.get(LegKey.of(profile, locations.get(i), location)) == null;
+        }
+
+        if (!isAnyMissing(missing)) {
+            return Mono.empty();
+        }
+        return fillMissingLegs(locations, profile, distances, durations, missing)
+                .onErrorResume(e -> {
+                    log.warn("Legs of a new location can't be fetched from OpenRouteService: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Estimate the matrix of the road distances and driving times between all the locations, without any network call.
+     *
+     * @param locations the locations, the first one should be the salesman home
+     * @return the estimated distance matrix
+     * @see GreatCircleMatrixEngine
+     */
+    public DistanceMatrix estimateMatrix(List<GeoCord> locations) {
+        double[] latitudes = new double[locations.size()];
+        double[] longitudes = new double[locations.size()];
+        for (int i = 0; i < locations.size(); i++) {
+            latitudes[i] = locations.get(i).latitude();
+            longitudes[i] = locations.get(i).longitude();
+        }
+        return greatCircleMatrixEngine.compute(latitudes, longitudes);
+    }
+
+    /**
+     * Fill the missing legs of a matrix, from the {@link LegStore} then from ORS.
+     * The legs fetched from ORS are put in the cache and in the store.
+     *
+     * @param locations all the locations of the matrix
+     * @param profile   the routing profile
+     * @param distances the distances of the matrix to fill
+     * @param durations the durations of the matrix to fill
+     * @param missing   the cells of the matrix still missing, updated with the legs found
+     * @return a Mono completing when the legs are filled, some can still be missing if ORS found no road
+     */
+    private Mono<Void> fillMissingLegs(List<GeoCord> locations, String profile,
+                                       double[] distances, double[] durations, boolean[] missing) {
+        int size = locations.size();
+        return findStoredLegs(locations, profile, distances, durations, missing)
+                .then(Mono.defer(() -> {
+                    List<MissingLegs> requests = planMissingLegs(missing, size);
+                    Map<LegKey, Leg> fetchedLegs = new HashMap<>();
+                    return Flux.fromIterable(requests)
+                            .concatMap(request -> fetchMissingLegs(request, locations, profile,
+                                    distances, durations, missing, fetchedLegs))
+                            .then(storeLegs(fetchedLegs));
+                }));
+    }
+
+    /**
+     * Fill the missing legs of several matrices, from the {@link LegStore} then from ORS.
+     * A matrix is only planned once the previous ones are filled, so a leg shared by two matrices is fetched once.
+     *
+     * @param locations       the locations of all the matrices
+     * @param matricesIndexes the index of the locations of each matrix
+     * @param profile         the routing profile
+     * @param distances       the distances between all the locations to fill
+     * @param durations       the durations between all the locations to fill
+     * @param missing         the cells still missing, updated with the legs found
+     * @return a Mono completing when the legs are filled, the legs of a matrix can still be missing if ORS failed
+     */
+    private Mono<Void> fillMissingLegs(List<GeoCord> locations, List<int[]> matricesIndexes, String profile,
+                                       double[] distances, double[] durations, boolean[] missing) {
+        int size = locations.size();
+        Map<LegKey, Leg> fetchedLegs = new HashMap<>();
+        return findStoredLegs(locations, profile, distances, durations, missing)
+                .thenMany(Flux.fromIterable(matricesIndexes).concatMap(indexes -> Flux
+                        .defer(() -> Flux.fromIterable(planMissingLegs(subMask(missing, size, indexes), indexes.length)))
+                        // The requests are planned in the matrix, the legs are filled in all the locations
+                        .map(request -> new MissingLegs(
+                                request.sources().stream().map(k -> indexes[k]).toList(),
+                                request.destinations().stream().map(k -> indexes[k]).toList()))
+                        .concatMap(request -> fetchMissingLegs(request, locations, profile,
+                                distances, durations, missing, fetchedLegs))
+                        // This matrix will be estimated, the next ones can still be complete
+                        .onErrorResume(e -> {
+                            log.warn("Distance matrix request to OpenRouteService failed: {}", e.getMessage());
+                            return Mono.empty();
+                        })))
+                .then(Mono.defer(() -> storeLegs(fetchedLegs)));
+    }
+
+    /**
+     * Take the missing legs from the {@link LegStore}, and put them in the cache and in the matrix.
+     * If the store can't be read, the legs stay missing and are fetched from ORS.
+     *
+     * @param locations all the locations of the matrix
+     * @param profile   the routing profile
+     * @param distances the distances of the matrix to fill
+     * @param durations the durations of the matrix to fill
+     * @param missing   the cells of the matrix still missing, updated with the stored legs
+     * @return a Mono completing when the store has been read
+     */
+    private Mono<Void> findStoredLegs(List<GeoCord> locations, String profile,
+                                      double[] distances, double[] durations, boolean[] missing) {
+        int size = locations.size();
+        return Mono.fromRunnable(() -> {
+                    Map<LegKey, Leg> storedLegs = legStore.findAll(profile, locations);
+                    for (int i = 0; i < size; i++) {
+                        for (int j = 0; j < size; j++) {
+                            if (!missing[i * size + j]) {
+                                continue;
+                            }
+                            LegKey key = LegKey.of(profile, locations.get(i), locations.get(j));
+                            Leg leg = storedLegs.get(key);
+                            if (leg != null) {
+                                legCache.put(key, leg);
+                                distances[i * size + j] = leg.distance();
+                                durations[i * size + j] = leg.duration();
+                                missing[i * size + j] = false;
+                            }
+                        }
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("Legs can't be read from the store: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Save the legs fetched from ORS in the {@link LegStore}, so the other instances of the API can use them.
+     * A failure is only logged, as the matrix is already complete.
+     *
+     * @param legs the fetched legs
+     * @return a Mono completing when the legs are saved
+     */
+    private Mono<Void> storeLegs(Map<LegKey, Leg> legs) {
+        return Mono.fromRunnable(() -> legStore.saveAll(legs))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(e -> {
+                    log.warn("Legs can't be saved in the store: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Fetch the missing legs from ORS, put them in the cache and in the matrix.
+     *
+     * @param request     the legs to fetch
+     * @param locations   all the locations of the matrix
+     * @param profile     the routing profile
+     * @param distances   the distances of the matrix to fill
+     * @param durations   the durations of the matrix to fill
+     * @param missing     the cells of the matrix still missing, updated with the fetched legs
+     * @param fetchedLegs the legs fetched, to save them in the store
+     * @return a Mono completing when the legs are fetched
+     */
+    private Mono<Void> fetchMissingLegs(MissingLegs request, List<GeoCord> locations, String profile,
+                                        double[] distances, double[] durations, boolean[] missing,
+                                        Map<LegKey, Leg> fetchedLegs) {
+        int size = locations.size();
+        List<GeoCord> sources = request.sources().stream().map(locations::get).toList();
+        List<GeoCord> destinations = request.destinations().stream().map(locations::get).toList();
+
+        return orsMatrixClient.fetch(profile, sources, destinations)
+                .doOnNext(block -> {
+                    for (int row = 0; row < block.rows(); row++) {
+                        for (int column = 0; column < block.columns(); column++) {
+                            int from = request.sources().get(row);
+                            int to = request.destinations().get(column);
+                            double distance = block.distance(row, column);
+                            double duration = block.duration(row, column);
+                            if (from == to || Double.isNaN(distance) || Double.isNaN(duration)) {
+                                continue;
+                            }
+                            LegKey key = LegKey.of(profile, sources.get(row), destinations.get(column));
+                            Leg leg = new Leg(distance, duration);
+                            legCache.put(key, leg);
+                            fetchedLegs.put(key, leg);
+                            distances[from * size + to] = distance;
+                            durations[from * size + to] = duration;
+                            missing[from * size + to] = false;
+                        }
+                    }
+                })
+                .then();
+    }
+
+    /**
+     * Get the cells of a sub-matrix.
+     *
+     * @param cells   the cells of the whole matrix, row by row
+     * @param size    the size of the whole matrix
+     * @param indexes the index of the locations of the sub-matrix in the whole matrix
+     * @return the cells of the sub-matrix, row by row
+     */
+    private static boolean[] subMask(boolean[] cells, int size, int[] indexes) {
+        boolean[] subCells = new boolean[indexes.length * indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            for (int j = 0; j < indexes.length; j++) {
+                subCells[i * indexes.length + j] = cells[indexes[i] * size + indexes[j]];
+            }
+        }
+        return subCells;
+    }
+
+    private static DistanceMatrix slice(double[] distances, double[] durations, int size, int[] indexes) {
+        int subSize = indexes.length;
+        double[] subDistances = new double[subSize * subSize];
+        double[] subDurations = new double[subSize * subSize];
+        for (int i = 0; i < subSize; i++) {
+            for (int j = 0; j < subSize; j++) {
+                subDistances[i * subSize + j] = distances[indexes[i] * size + indexes[j]];
+                subDurations[i * subSize + j] = durations[indexes[i] * size + indexes[j]];
+            }
+        }
+        return new DistanceMatrix(subSize, subDistances, subDurations);
+    }
+
+    private static boolean isAnyMissing(boolean[] missing) {
+        for (boolean isMissing : missing) {
+            if (isMissing) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plan the requests to fetch the missing legs of a matrix.
+     * <p>
+     * If all the legs from the rows concerned to the columns concerned are missing (e.g. nothing is cached),
+     * a single request is planned.
+     * Else the rows missing the same columns are grouped in the same request,
+     * so adding a client to a known matrix needs two requests (its row and its column) instead of the whole matrix.
+     * If there are too many groups, a single request with all the rows and columns concerned is planned anyway.
+     *
+     * @param missing the cells of the matrix to fetch, row by row
+     * @param size    the size of the matrix
+     * @return the requests to send, empty if no leg is missing
+     */
+    static List<MissingLegs> planMissingLegs(boolean[] missing, int size) {
+        Map<List<Integer>, List<Integer>> rowsByMissingColumns = new LinkedHashMap<>();
+        TreeSet<Integer> allColumns = new TreeSet<>();
+        List<Integer> allRows = new ArrayList<>();
+        int missingLegs = 0;
+
+        for (int i = 0; i < size; i++) {
+            List<Integer> missingColumns = new ArrayList<>();
+            for (int j = 0; j < size; j++) {
+                if (missing[i * size + j]) {
+                    missingColumns.add(j);
+                    missingLegs++;
+                }
+            }
+            if (!missingColumns.isEmpty()) {
+                rowsByMissingColumns.computeIfAbsent(missingColumns, columns -> new ArrayList<>()).add(i);
+                allColumns.addAll(missingColumns);
+                allRows.add(i);
+            }
+        }
+
+        if (rowsByMissingColumns.isEmpty()) {
+            return List.of();
+        }
+
+        // Number of legs (the diagonal excluded) of a single request with all the rows and columns concerned
+        int boundingBoxLegs = allRows.size() * allColumns.size()
+                - (int) allRows.stream().filter(allColumns::contains).count();
+        if (boundingBoxLegs == missingLegs || rowsByMissingColumns.size() > MAX_MISSING_LEGS_REQUESTS) {
+            return List.of(new MissingLegs(allRows, new ArrayList<>(allColumns)));
+        }
+        return rowsByMissingColumns.entrySet().stream()
+                .map(entry -> new MissingLegs(entry.getValue(), entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * Legs to fetch, from each source to each destination.
+     *
+     * @param sources      the index of the sources in the matrix
+     * @param destinations the index of the destinations in the matrix
+     */
+    record MissingLegs(List<Integer> sources, List<Integer> destinations) {
+    }
+}
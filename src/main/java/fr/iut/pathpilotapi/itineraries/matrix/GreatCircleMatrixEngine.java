@@ -0,0 +1,89 @@
+/*
+ * GreatCircleMatrixEngine.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GreatCircle;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local engine computing the distance matrix without any network call.
+ * <p>
+ * The distance between two locations is the {@link GreatCircle} distance
+ * multiplied by a road factor, because a road is never a straight line.
+ * The driving time is this distance at an average speed.
+ * It's used when OpenRouteService isn't available, and to preview an itinerary immediately.
+ */
+@Component
+public class GreatCircleMatrixEngine {
+
+    /**
+     * Factor applied to the great-circle distance to estimate the road distance
+     */
+    @Getter
+    private final double roadFactor;
+
+    /**
+     * Average speed on the roads, in meters per second
+     */
+    @Getter
+    private final double averageSpeed;
+
+    public GreatCircleMatrixEngine(
+            @Value("${pathpilot.matrix.road-factor:1.3}") double roadFactor,
+            @Value("${pathpilot.matrix.average-speed:50}") double averageSpeedKmh
+    ) {
+        if (roadFactor < 1.0) {
+            throw new IllegalArgumentException("The road factor can't be lower than 1");
+        }
+        if (averageSpeedKmh <= 0) {
+            throw new IllegalArgumentException("The average speed must be positive");
+        }
+        this.roadFactor = roadFactor;
+        this.averageSpeed = averageSpeedKmh / 3.6;
+    }
+
+    /**
+     * Compute the matrix of the estimated road distances and driving times between all the locations.
+     *
+     * @param latitudes  the latitude of each location, in degrees
+     * @param longitudes the longitude of each location, in degrees
+     * @return the distance matrix, in meters and seconds
+     */
+    public DistanceMatrix compute(double[] latitudes, double[] longitudes) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Each location must have a latitude and a longitude");
+        }
+        int size = latitudes.length;
+
+        // The trigonometric values only depend on the location, so we compute them once
+        double[] latRadians = new double[size];
+        double[] lonRadians = new double[size];
+        double[] cosLat = new double[size];
+        for (int i = 0; i < size; i++) {
+            latRadians[i] = Math.toRadians(latitudes[i]);
+            lonRadians[i] = Math.toRadians(longitudes[i]);
+            cosLat[i] = Math.cos(latRadians[i]);
+        }
+
+        double[] distances = new double[size * size];
+        double[] durations = new double[size * size];
+        for (int i = 0; i < size; i++) {
+            // The matrix is symmetric, so we only compute the upper triangle
+            for (int j = i + 1; j < size; j++) {
+                double distance = GreatCircle.angle(latRadians[i], lonRadians[i], cosLat[i], latRadians[j], lonRadians[j], cosLat[j])
+                        * GreatCircle.EARTH_RADIUS * roadFactor;
+
+                distances[i * size + j] = distance;
+                distances[j * size + i] = distance;
+                durations[i * size + j] = distance / averageSpeed;
+                durations[j * size + i] = distance / averageSpeed;
+            }
+        }
+        return new DistanceMatrix(size, distances, durations);
+    }
+}
@@ -0,0 +1,15 @@
+/*
+ * Leg.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+/**
+ * Result of the routing between two locations.
+ *
+ * @param distance the road distance in meters
+ * @param duration the driving time in seconds
+ */
+public record Leg(double distance, double duration) {
+}
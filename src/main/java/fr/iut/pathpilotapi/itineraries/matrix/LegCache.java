@@ -0,0 +1,58 @@
+/*
+ * LegCache.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In memory cache of the legs already computed by OpenRouteService.
+ * <p>
+ * The legs expire after a time to live, because the roads change.
+ * When the cache is full, the least recently used leg is evicted.
+ */
+@Component
+public class LegCache {
+
+    private final LruCache<LegKey, Leg> legs;
+
+    public LegCache(
+            @Value("${pathpilot.matrix.cache.max-legs:100000}") int maxSize,
+            @Value("${pathpilot.matrix.cache.ttl:7d}") Duration timeToLive
+    ) {
+        this.legs = new LruCache<>(maxSize, timeToLive);
+    }
+
+    /**
+     * Get a leg from the cache.
+     *
+     * @param key the key of the leg
+     * @return the leg, or null if it isn't in the cache or has expired
+     */
+    public Leg get(LegKey key) {
+        return legs.get(key);
+    }
+
+    /**
+     * Add a leg to the cache, or replace it if it's already in.
+     *
+     * @param key the key of the leg
+     * @param leg the leg
+     */
+    public void put(LegKey key, Leg leg) {
+        legs.put(key, leg);
+    }
+
+    /**
+     * @return the number of legs in the cache, including the expired ones not evicted yet
+     */
+    public int size() {
+        return legs.size();
+    }
+}
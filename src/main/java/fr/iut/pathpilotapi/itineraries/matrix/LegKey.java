@@ -0,0 +1,52 @@
+/*
+ * LegKey.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+
+/**
+ * Key identifying a leg between two locations for a routing profile.
+ * <p>
+ * The coordinates are quantised to 5 decimals (about 1 meter),
+ * so two positions of the same company always give the same key.
+ *
+ * @param profile the routing profile (e.g. driving-car)
+ * @param fromLat the quantised latitude of the start
+ * @param fromLon the quantised longitude of the start
+ * @param toLat   the quantised latitude of the destination
+ * @param toLon   the quantised longitude of the destination
+ */
+public record LegKey(String profile, int fromLat, int fromLon, int toLat, int toLon) {
+
+    /**
+     * Number of quantisation steps in a degree
+     */
+    public static final double PRECISION = 100_000;
+
+    /**
+     * Create the key of the leg between two locations.
+     *
+     * @param profile the routing profile
+     * @param from    the start of the leg
+     * @param to      the destination of the leg
+     * @return the key of the leg
+     */
+    public static LegKey of(String profile, GeoCord from, GeoCord to) {
+        return new LegKey(profile,
+                quantise(from.latitude()), quantise(from.longitude()),
+                quantise(to.latitude()), quantise(to.longitude()));
+    }
+
+    /**
+     * Quantise a coordinate.
+     *
+     * @param coordinate the coordinate in degrees
+     * @return the coordinate as an integer number of steps
+     */
+    public static int quantise(double coordinate) {
+        return (int) Math.round(coordinate * PRECISION);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * LegStore.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Persistent store of the legs computed by OpenRouteService, behind the {@link LegCache}.
+ * <p>
+ * The legs are in the {@value #COLLECTION} collection, with:
+ * <ul>
+ *     <li>a unique compound index on the profile and the quantised coordinates, to find the legs of a matrix</li>
+ *     <li>a TTL index on the computation date, so MongoDB removes the old legs by itself</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class LegStore implements SmartInitializingSingleton {
+
+    public static final String COLLECTION = "distance_legs";
+
+    private final MongoTemplate mongoTemplate;
+
+    private final Duration timeToLive;
+
+    public LegStore(MongoTemplate mongoTemplate,
+                    @Value("${pathpilot.matrix.store.ttl:30d}") Duration timeToLive) {
+        this.mongoTemplate = mongoTemplate;
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Create the indexes of the collection if they don't exist yet.
+     * <p>
+     * The automatic index creation of Spring Data is disabled,
+     * and the TTL depends on the configuration, so the indexes are created at startup.
+     */
+    public void ensureIndexes() {
+        IndexOperations indexOperations = mongoTemplate.indexOps(DistanceLeg.class);
+        indexOperations.ensureIndex(new Index()
+                .on("profile", Sort.Direction.ASC)
+                .on("fromLat", Sort.Direction.ASC)
+                .on("fromLon", Sort.Direction.ASC)
+                .on("toLat", Sort.Direction.ASC)
+                .on("toLon", Sort.Direction.ASC)
+                .unique()
+                .named("profile_coordinates"));
+        indexOperations.ensureIndex(new Index()
+                .on("computedAt", Sort.Direction.ASC)
+                .expire(timeToLive)
+                .named("computedAt_ttl"));
+    }
+
+    /**
+     * Create the indexes before the web server starts, so the first legs stored are already deduplicated.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureIndexes();
+    }
+
+    /**
+     * Find the stored legs between the locations.
+     *
+     * @param profile   the routing profile
+     * @param locations the locations of the matrix
+     * @return the legs found, by key
+     */
+    public Map<LegKey, Leg> findAll(String profile, List<GeoCord> locations) {
+        Set<Integer> latitudes = locations.stream().map(location -> LegKey.quantise(location.latitude())).collect(Collectors.toSet());
+        Set<Integer> longitudes = locations.stream().map(location -> LegKey.quantise(location.longitude())).collect(Collectors.toSet());
+        Set<LegKey> wantedKeys = new HashSet<>();
+        for (GeoCord from : locations) {
+            for (GeoCord to : locations) {
+                wantedKeys.add(LegKey.of(profile, from, to));
+            }
+        }
+
+        Query query = query(where("profile").is(profile)
+                .and("fromLat").in(latitudes)
+                .and("fromLon").in(longitudes)
+                .and("toLat").in(latitudes)
+                .and("toLon").in(longitudes));
+
+        Map<LegKey, Leg> legs = new HashMap<>();
+        for (DistanceLeg distanceLeg : mongoTemplate.find(query, DistanceLeg.class)) {
+            // The query can match a latitude of a location with the longitude of another one
+            LegKey key = distanceLeg.toKey();
+            // A leg without duration is fetched again
+            if (wantedKeys.contains(key) && distanceLeg.getDuration() != null) {
+                legs.put(key, new Leg(distanceLeg.getDistance(), distanceLeg.getDuration()));
+            }
+        }
+        return legs;
+    }
+
+    /**
+     * Store the legs, replacing the ones already stored with the same key.
+     *
+     * @param legs the legs to store, by key
+     */
+    public void saveAll(Map<LegKey, Leg> legs) {
+        if (legs.isEmpty()) {
+            return;
+        }
+        Date now = new Date();
+        BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DistanceLeg.class);
+        legs.forEach((key, leg) -> bulkOperations.upsert(
+                query(where("profile").is(key.profile())
+                        .and("fromLat").is(key.fromLat())
+                        .and("fromLon").is(key.fromLon())
+                        .and("toLat").is(key.toLat())
+                        .and("toLon").is(key.toLon())),
+                new Update()
+                        .set("distance", leg.distance())
+                        .set("duration", leg.duration())
+                        .set("computedAt", now)));
+        bulkOperations.execute();
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * MatrixBlock.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+/**
+ * Rectangular part of a distance matrix, from some sources to some destinations.
+ * <p>
+ * The cells are stored row by row, a cell is {@link Double#NaN} when no road was found.
+ *
+ * @param rows      the number of sources
+ * @param columns   the number of destinations
+ * @param distances the distances in meters
+ * @param durations the driving times in seconds
+ */
+public record MatrixBlock(int rows, int columns, double[] distances, double[] durations) {
+
+    /**
+     * Get the distance from a source to a destination.
+     *
+     * @param row    the index of the source
+     * @param column the index of the destination
+     * @return the distance in meters, or {@link Double#NaN} if there is no road
+     */
+    public double distance(int row, int column) {
+        return distances[row * columns + column];
+    }
+
+    /**
+     * Get the driving time from a source to a destination.
+     *
+     * @param row    the index of the source
+     * @param column the index of the destination
+     * @return the duration in seconds, or {@link Double#NaN} if there is no road
+     */
+    public double duration(int row, int column) {
+        return durations[row * columns + column];
+    }
+}
@@ -0,0 +1,20 @@
+/*
+ * MatrixCells.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * Cells of a matrix returned by OpenRouteService, read without boxing.
+ *
+ * @param rows    the number of rows
+ * @param columns the number of columns
+ * @param cells   the cells row by row, {@link Double#NaN} when ORS returned null (no road)
+ * @see MatrixCellsDeserializer
+ */
+@JsonDeserialize(using = MatrixCellsDeserializer.class)
+public record MatrixCells(int rows, int columns, double[] cells) {
+}
@@ -0,0 +1,74 @@
+/*
+ * MatrixCellsDeserializer.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Read a matrix of numbers (an array of arrays) directly into a flat primitive array.
+ * <p>
+ * A matrix read as {@code List<List<Double>>} boxes every cell, and is then copied for the algorithms.
+ * Here the tokens are read one by one, so a matrix only allocates its array of cells.
+ */
+public class MatrixCellsDeserializer extends StdDeserializer<MatrixCells> {
+
+    /**
+     * Initial number of cells, enough for a matrix of 16 locations
+     */
+    private static final int INITIAL_CAPACITY = 256;
+
+    public MatrixCellsDeserializer() {
+        super(MatrixCells.class);
+    }
+
+    @Override
+    public MatrixCells deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartArrayToken()) {
+            throw context.wrongTokenException(parser, MatrixCells.class, JsonToken.START_ARRAY, "A matrix must be an array of rows");
+        }
+
+        double[] cells = new double[INITIAL_CAPACITY];
+        int size = 0;
+        int rows = 0;
+        int columns = -1;
+
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token != JsonToken.START_ARRAY) {
+                throw context.wrongTokenException(parser, MatrixCells.class, JsonToken.START_ARRAY, "A row must be an array");
+            }
+            int rowSize = 0;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (size == cells.length) {
+                    cells = Arrays.copyOf(cells, cells.length * 2);
+                }
+                cells[size++] = switch (token) {
+                    case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> parser.getDoubleValue();
+                    case VALUE_NULL -> Double.NaN;
+                    default -> throw context.wrongTokenException(parser, MatrixCells.class, JsonToken.VALUE_NUMBER_FLOAT,
+                            "A cell must be a number or null");
+                };
+                rowSize++;
+            }
+
+            if (columns == -1) {
+                columns = rowSize;
+            } else if (rowSize != columns) {
+                throw JsonMappingException.from(parser, "All the rows of a matrix must have the same size");
+            }
+            rows++;
+        }
+
+        return new MatrixCells(rows, Math.max(columns, 0), size == cells.length ? cells : Arrays.copyOf(cells, size));
+    }
+}
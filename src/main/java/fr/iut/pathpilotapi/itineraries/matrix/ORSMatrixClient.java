@@ -0,0 +1,230 @@
+/*
+ * ORSMatrixClient.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+import fr.iut.pathpilotapi.itineraries.dto.MatrixDistancesResponseModel;
+import fr.iut.pathpilotapi.itineraries.dto.MatrixLocationsRequestModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client of the matrix endpoint of OpenRouteService.
+ * <p>
+ * ORS limits the number of locations of a request, so a big matrix is split into tiles
+ * (some sources to some destinations) fetched concurrently, then stitched together.
+ * <br>
+ * Identical requests sent at the same time (e.g. a double tap on "create itinerary")
+ * share a single call to ORS.
+ */
+@Component
+public class ORSMatrixClient {
+
+    private final WebClient oRSWebClient;
+
+    private final ORSResilience orsResilience;
+
+    /**
+     * Max number of locations (sources and destinations) in a request to ORS
+     */
+    private final int maxLocations;
+
+    /**
+     * Max number of tiles fetched at the same time
+     */
+    private final int concurrency;
+
+    private final SingleFlight<MatrixRequestKey, MatrixBlock> singleFlight = new SingleFlight<>();
+
+    public ORSMatrixClient(
+            WebClient oRSWebClient,
+            ORSResilience orsResilience,
+            @Value("${pathpilot.matrix.ors.max-locations:50}") int maxLocations,
+            @Value("${pathpilot.matrix.ors.concurrency:4}") int concurrency
+    ) {
+        if (maxLocations < 2) {
+            throw new IllegalArgumentException("A request to ORS must contain at least 2 locations");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("The concurrency must be at least 1");
+        }
+        this.oRSWebClient = oRSWebClient;
+        this.orsResilience = orsResilience;
+        this.maxLocations = maxLocations;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Fetch the road distances and driving times from each source to each destination, in a single call per tile.
+     *
+     * @param profile      the routing profile (e.g. driving-car)
+     * @param sources      the locations we start from
+     * @param destinations the locations we go to
+     * @return the distances, with a row for each source and a column for each destination
+     */
+    public Mono<MatrixBlock> fetch(String profile, List<GeoCord> sources, List<GeoCord> destinations) {
+        if (sources.size() + destinations.size() <= maxLocations) {
+            return fetchTile(profile, sources, destinations);
+        }
+
+        int columns = destinations.size();
+        double[] distances = new double[sources.size() * columns];
+        double[] durations = new double[sources.size() * columns];
+        return Flux.fromIterable(planTiles(sources.size(), columns, maxLocations))
+                .flatMap(tile -> fetchTile(profile,
+                        sources.subList(tile.firstRow(), tile.firstRow() + tile.rows()),
+                        destinations.subList(tile.firstColumn(), tile.firstColumn() + tile.columns()))
+                        .doOnNext(block -> {
+                            // The tiles don't overlap, so they can be copied concurrently
+                            for (int row = 0; row < block.rows(); row++) {
+                                int destination = (tile.firstRow() + row) * columns + tile.firstColumn();
+                                System.arraycopy(block.distances(), row * block.columns(), distances, destination, block.columns());
+                                System.arraycopy(block.durations(), row * block.columns(), durations, destination, block.columns());
+                            }
+                        }), concurrency)
+                .then(Mono.fromCallable(() -> new MatrixBlock(sources.size(), columns, distances, durations)));
+    }
+
+    /**
+     * Fetch a tile small enough to be sent in a single request,
+     * or join the identical request in flight.
+     *
+     * @param profile      the routing profile
+     * @param sources      the locations we start from
+     * @param destinations the locations we go to
+     * @return the distances, with a row for each source and a column for each destination
+     */
+    private Mono<MatrixBlock> fetchTile(String profile, List<GeoCord> sources, List<GeoCord> destinations) {
+        MatrixRequestKey key = new MatrixRequestKey(profile, List.copyOf(sources), List.copyOf(destinations));
+        return singleFlight.execute(key, () -> request(profile, sources, destinations));
+    }
+
+    /**
+     * Split a matrix into tiles with at most {@code maxLocations} sources and destinations.
+     * <p>
+     * The smallest side is split in half of the locations,
+     * so a single row (e.g. a new client) uses almost all the locations of each request for its columns.
+     *
+     * @param rows         the number of sources
+     * @param columns      the number of destinations
+     * @param maxLocations the max number of locations in a request
+     * @return the tiles covering the whole matrix
+     */
+    static List<Tile> planTiles(int rows, int columns, int maxLocations) {
+        int rowsPerTile;
+        int columnsPerTile;
+        if (rows <= columns) {
+            rowsPerTile = Math.min(rows, maxLocations / 2);
+            columnsPerTile = maxLocations - rowsPerTile;
+        } else {
+            columnsPerTile = Math.min(columns, maxLocations / 2);
+            rowsPerTile = maxLocations - columnsPerTile;
+        }
+
+        List<Tile> tiles = new ArrayList<>();
+        for (int firstRow = 0; firstRow < rows; firstRow += rowsPerTile) {
+            for (int firstColumn = 0; firstColumn < columns; firstColumn += columnsPerTile) {
+                tiles.add(new Tile(firstRow, Math.min(rowsPerTile, rows - firstRow),
+                        firstColumn, Math.min(columnsPerTile, columns - firstColumn)));
+            }
+        }
+        return tiles;
+    }
+
+    /**
+     * Send the request to ORS, protected by the {@link ORSResilience}.
+     *
+     * @param profile      the routing profile
+     * @param sources      the locations we start from
+     * @param destinations the locations we go to
+     * @return the distances, with a row for each source and a column for each destination
+     */
+    private Mono<MatrixBlock> request(String profile, List<GeoCord> sources, List<GeoCord> destinations) {
+        // A location can be both a source and a destination, so we send it only once
+        List<List<Double>> locations = new ArrayList<>();
+        Map<GeoCord, Integer> locationsIndex = new HashMap<>();
+        List<Integer> sourcesIndex = indexLocations(sources, locations, locationsIndex);
+        List<Integer> destinationsIndex = indexLocations(destinations, locations, locationsIndex);
+
+        MatrixLocationsRequestModel request = new MatrixLocationsRequestModel(locations, List.of("distance", "duration"));
+        request.setSources(sourcesIndex);
+        request.setDestinations(destinationsIndex);
+
+        return orsResilience.protect(oRSWebClient.post()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/matrix/{profile}")
+                                .build(profile))
+                        .bodyValue(request)
+                        .retrieve()
+                        .bodyToMono(MatrixDistancesResponseModel.class))
+                .map(response -> toBlock(response, sources.size(), destinations.size()));
+    }
+
+    /**
+     * Add the locations to the list sent to ORS if they aren't already in.
+     *
+     * @param toIndex        the locations to add
+     * @param locations      the locations sent to ORS, as [longitude, latitude]
+     * @param locationsIndex the index of each location in the list sent to ORS
+     * @return the index of each location to add in the list sent to ORS
+     */
+    private static List<Integer> indexLocations(List<GeoCord> toIndex, List<List<Double>> locations, Map<GeoCord, Integer> locationsIndex) {
+        List<Integer> indexes = new ArrayList<>(toIndex.size());
+        for (GeoCord location : toIndex) {
+            indexes.add(locationsIndex.computeIfAbsent(location, newLocation -> {
+                // ORS expects the longitude first
+                locations.add(List.of(newLocation.longitude(), newLocation.latitude()));
+                return locations.size() - 1;
+            }));
+        }
+        return indexes;
+    }
+
+    /**
+     * Convert the distances and durations returned by ORS to a block.
+     *
+     * @param response the response of ORS, a cell is NaN when there is no road
+     * @param rows     the expected number of rows
+     * @param columns  the expected number of columns
+     * @return the block of distances
+     * @throws IllegalStateException if the size of a matrix isn't the expected one
+     */
+    private static MatrixBlock toBlock(MatrixDistancesResponseModel response, int rows, int columns) {
+        if (!hasSize(response.getDistances(), rows, columns) || !hasSize(response.getDurations(), rows, columns)) {
+            throw new IllegalStateException("OpenRouteService returned an incomplete distance matrix");
+        }
+        return new MatrixBlock(rows, columns, response.getDistances().cells(), response.getDurations().cells());
+    }
+
+    private static boolean hasSize(MatrixCells cells, int rows, int columns) {
+        return cells != null && cells.rows() == rows && cells.columns() == columns;
+    }
+
+    /**
+     * Key identifying identical requests.
+     */
+    private record MatrixRequestKey(String profile, List<GeoCord> sources, List<GeoCord> destinations) {
+    }
+
+    /**
+     * Part of a matrix fetched in a single request.
+     *
+     * @param firstRow    the index of the first source of the tile
+     * @param rows        the number of sources of the tile
+     * @param firstColumn the index of the first destination of the tile
+     * @param columns     the number of destinations of the tile
+     */
+    record Tile(int firstRow, int rows, int firstColumn, int columns) {
+    }
+}
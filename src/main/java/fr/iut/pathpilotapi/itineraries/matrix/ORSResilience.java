@@ -0,0 +1,82 @@
+/*
+ * ORSResilience.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Protection of our API against the failures and the slowness of OpenRouteService.
+ * <p>
+ * Each call to ORS:
+ * <ul>
+ *     <li>is rejected if too many calls are running (bulkhead)</li>
+ *     <li>fails if it lasts longer than the timeout</li>
+ *     <li>is rejected while ORS is failing too often (circuit breaker)</li>
+ *     <li>is retried a few times with a random backoff on a 429, a 5xx or a network error</li>
+ * </ul>
+ * A rejected or failed call makes the {@link DistanceMatrixService} estimate the distances.
+ * <br>
+ * The instances are all named {@value #INSTANCE} and configured in the {@code resilience4j.*} properties,
+ * their state is exposed in the metrics.
+ */
+@Component
+public class ORSResilience {
+
+    public static final String INSTANCE = "ors";
+
+    private final Bulkhead bulkhead;
+
+    private final CircuitBreaker circuitBreaker;
+
+    private final Retry retry;
+
+    /**
+     * Max duration of a single call
+     */
+    private final Duration timeout;
+
+    public ORSResilience(
+            BulkheadRegistry bulkheadRegistry,
+            CircuitBreakerRegistry circuitBreakerRegistry,
+            RetryRegistry retryRegistry,
+            @Value("${pathpilot.ors.timeout:10s}") Duration timeout
+    ) {
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCE);
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCE);
+        this.retry = retryRegistry.retry(INSTANCE);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Protect a call to ORS.
+     * <p>
+     * The call must be lazy (e.g. a {@code WebClient} request), as it's subscribed again on each retry.
+     *
+     * @param call the call to protect
+     * @param <T>  the type of the result of the call
+     * @return the protected call
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .timeout(timeout)
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker))
+                .transformDeferred(RetryOperator.of(retry));
+    }
+}
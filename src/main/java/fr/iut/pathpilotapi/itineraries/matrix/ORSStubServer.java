@@ -0,0 +1,188 @@
+/*
+ * ORSStubServer.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in of the matrix endpoint of OpenRouteService, started with the {@code ors-stub} profile.
+ * <p>
+ * It answers {@code POST /matrix/{profile}} like ORS, with the distances and durations
+ * of the {@link GreatCircleMatrixEngine}, so the whole itinerary path can be used offline and load tested.
+ * The latency and the rate of errors are configurable, the errors are drawn from a seeded random,
+ * so a slow or failing ORS can be reproduced identically.
+ */
+@Slf4j
+@Component
+@Profile("ors-stub")
+public class ORSStubServer {
+
+    private final GreatCircleMatrixEngine greatCircleMatrixEngine;
+
+    private final ObjectMapper objectMapper;
+
+    private final int port;
+
+    private final Duration latency;
+
+    private final double errorRate;
+
+    private final Random random;
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    public ORSStubServer(
+            GreatCircleMatrixEngine greatCircleMatrixEngine,
+            ObjectMapper objectMapper,
+            @Value("${pathpilot.ors-stub.port:8089}") int port,
+            @Value("${pathpilot.ors-stub.latency:0ms}") Duration latency,
+            @Value("${pathpilot.ors-stub.error-rate:0}") double errorRate,
+            @Value("${pathpilot.ors-stub.seed:42}") long seed
+    ) {
+        if (errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("The error rate must be between 0 and 1");
+        }
+        this.greatCircleMatrixEngine = greatCircleMatrixEngine;
+        this.objectMapper = objectMapper;
+        this.port = port;
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Start the server on the loopback address.
+     *
+     * @throws IOException if the port can't be used
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        // The latency is simulated by sleeping, so each request has its own virtual thread
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/matrix/", this::handle);
+        server.start();
+        log.info("OpenRouteService stub listening on port {}", getPort());
+    }
+
+    @PreDestroy
+    public void stop() {
+        server.stop(0);
+        executor.close();
+    }
+
+    /**
+     * @return the port of the server, useful when it's started on a random port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, Map.of("error", "Method not allowed"));
+                return;
+            }
+            if (!latency.isZero()) {
+                Thread.sleep(latency);
+            }
+            if (isError()) {
+                send(exchange, 503, Map.of("error", "Injected error"));
+                return;
+            }
+
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            send(exchange, 200, computeMatrix(request));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.warn("OpenRouteService stub can't answer: {}", e.getMessage());
+            send(exchange, 400, Map.of("error", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private synchronized boolean isError() {
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    /**
+     * Compute the response of a matrix request.
+     *
+     * @param request the body of the request, with the locations as [longitude, latitude],
+     *                and the index of the sources and destinations (all the locations if absent)
+     * @return the body of the response, with the distances and the durations
+     */
+    Map<String, Object> computeMatrix(JsonNode request) {
+        JsonNode locations = request.required("locations");
+        double[] latitudes = new double[locations.size()];
+        double[] longitudes = new double[locations.size()];
+        for (int i = 0; i < locations.size(); i++) {
+            longitudes[i] = locations.get(i).get(0).asDouble();
+            latitudes[i] = locations.get(i).get(1).asDouble();
+        }
+        DistanceMatrix matrix = greatCircleMatrixEngine.compute(latitudes, longitudes);
+
+        int[] sources = indexes(request.get("sources"), locations.size());
+        int[] destinations = indexes(request.get("destinations"), locations.size());
+        double[][] distances = new double[sources.length][destinations.length];
+        double[][] durations = new double[sources.length][destinations.length];
+        for (int row = 0; row < sources.length; row++) {
+            for (int column = 0; column < destinations.length; column++) {
+                distances[row][column] = matrix.distance(sources[row], destinations[column]);
+                durations[row][column] = matrix.duration(sources[row], destinations[column]);
+            }
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("distances", distances);
+        response.put("durations", durations);
+        return response;
+    }
+
+    private static int[] indexes(JsonNode node, int size) {
+        int[] indexes = new int[node == null || node.isNull() ? size : node.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = node == null || node.isNull() ? i : node.get(i).asInt();
+        }
+        return indexes;
+    }
+
+    private void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Objective.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+/**
+ * What the best path of an itinerary minimises.
+ *
+ * @see DistanceMatrix#costs(Objective, double)
+ */
+public enum Objective {
+
+    /**
+     * The total road distance
+     */
+    DISTANCE,
+
+    /**
+     * The total driving time
+     */
+    DURATION,
+
+    /**
+     * A mix of the distance and the driving time, weighted by the request
+     */
+    WEIGHTED
+}
@@ -0,0 +1,46 @@
+/*
+ * SingleFlight.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Share a single call between the identical calls running at the same time.
+ * <p>
+ * The first caller starts the call, the others subscribe to the same {@link Mono} until it completes.
+ * The result isn't kept afterward: a call made after the completion starts a new one.
+ *
+ * @param <K> the type of the key identifying identical calls
+ * @param <V> the type of the result of the call
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Execute the call, or join the identical call in flight.
+     *
+     * @param key  the key identifying the call
+     * @param call the call to execute if there is no identical call in flight
+     * @return the result of the call
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, newKey -> call.get()
+                .doFinally(signal -> inFlight.remove(newKey))
+                .cache()));
+    }
+
+    /**
+     * @return the number of calls in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
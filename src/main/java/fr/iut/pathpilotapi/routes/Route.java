@@ -5,13 +5,14 @@ import jakarta.persistence.Id;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
-import org.springframework.data.mongodb.core.geo.GeoJsonLineString;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
 import org.springframework.data.mongodb.core.index.GeoSpatialIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.Objects;
@@ -36,6 +37,13 @@ public class Route {
     @Id
     private String id;
 
+    /**
+     * Version of the document, increased by each write, so a save of an outdated copy fails
+     * instead of overwriting the changes made since it was read
+     */
+    @Version
+    private Long version;
+
     /**
      * The salesman ID (keep it in camelCase, else SpringFramework will not be able to map the field correctly)
      */
@@ -58,11 +66,16 @@ public class Route {
     private LinkedList<RouteClient> clients;
 
     /**
-     * Salesman positions as a LineString
+     * Latest position of the salesman, the previous ones are in the {@link fr.iut.pathpilotapi.routes.position.SalesmanPositionStore}
      */
-    @GeoSpatialIndexed(type = GeoSpatialIndexType.GEO_2DSPHERE)
-    @Field("salesman_positions")
-    private GeoJsonLineString salesmanPositions;
+    @Field("salesman_current_position")
+    private GeoJsonPoint salesmanCurrentPosition;
+
+    /**
+     * When the latest position of the salesman was recorded, so a position recorded before it doesn't replace it
+     */
+    @Field("salesman_current_position_timestamp")
+    private Instant salesmanCurrentPositionTimestamp;
 
     /**
      * Route state
@@ -79,13 +92,13 @@ public class Route {
                 Objects.equals(salesman_home, route.salesman_home) &&
                 Objects.equals(startDate, route.startDate) &&
                 Objects.equals(clients, route.clients) &&
-                Objects.equals(salesmanPositions, route.salesmanPositions) &&
+                Objects.equals(salesmanCurrentPosition, route.salesmanCurrentPosition) &&
                 Objects.equals(state, route.state);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, salesmanId, salesman_home, clients, startDate, salesmanPositions, state);
+        return Objects.hash(id, salesmanId, salesman_home, clients, startDate, salesmanCurrentPosition, state);
     }
 
     @Override
@@ -96,7 +109,7 @@ public class Route {
                 ", salesman_home=" + salesman_home +
                 ", startDate=" + startDate +
                 ", clients=" + clients +
-                ", salesManCurrentPosition=" + salesmanPositions +
+                ", salesManCurrentPosition=" + salesmanCurrentPosition +
                 '}';
     }
 }
\ No newline at end of file
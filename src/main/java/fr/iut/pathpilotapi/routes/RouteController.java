@@ -7,15 +7,18 @@ package fr.iut.pathpilotapi.routes;
 
 import fr.iut.pathpilotapi.GeoCord;
 import fr.iut.pathpilotapi.Status;
-import fr.iut.pathpilotapi.clients.entity.Client;
 import fr.iut.pathpilotapi.clients.service.ClientService;
 import fr.iut.pathpilotapi.clients.entity.MongoClient;
 import fr.iut.pathpilotapi.clients.dto.ClientPagedModelAssembler;
 import fr.iut.pathpilotapi.clients.dto.ClientResponseModel;
+import fr.iut.pathpilotapi.clients.dto.ClientView;
 import fr.iut.pathpilotapi.routes.dto.RoutePagedModelAssembler;
 import fr.iut.pathpilotapi.routes.dto.RouteRequestModel;
 import fr.iut.pathpilotapi.routes.dto.RouteResponseModel;
 import fr.iut.pathpilotapi.routes.dto.RouteResponseModelAssembler;
+import fr.iut.pathpilotapi.routes.dto.SalesmanPositionResponseModel;
+import fr.iut.pathpilotapi.routes.dto.SalesmanPositionsRequestModel;
+import fr.iut.pathpilotapi.routes.nearby.NearbyProspectService;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import fr.iut.pathpilotapi.security.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
@@ -31,16 +34,23 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
 import org.springframework.data.geo.Metrics;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
 import org.springframework.hateoas.PagedModel;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Instant;
 import java.util.List;
 
+import static fr.iut.pathpilotapi.Constants.MAX_TRACE_POSITIONS;
 import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.*;
 
 @RestController
@@ -59,6 +69,8 @@ public class RouteController {
 
     private final ClientPagedModelAssembler clientPagedModelAssembler;
 
+    private final NearbyProspectService nearbyProspectService;
+
     @Operation(
             summary = "Create a new route",
             responses = {
@@ -183,6 +195,7 @@ public class RouteController {
     ) {
         Salesman salesman = SecurityUtils.getCurrentSalesman();
         routeService.stopRoute(id, salesman);
+        nearbyProspectService.complete(id);
 
         EntityModel<Status> statusModel = EntityModel.of(new Status(true));
         statusModel.add(
@@ -293,6 +306,7 @@ public class RouteController {
     ) {
         Salesman salesman = SecurityUtils.getCurrentSalesman();
         routeService.deleteByIdAndConnectedSalesman(routeId, salesman);
+        nearbyProspectService.complete(routeId);
 
         return ResponseEntity.ok(new Status(true));
     }
@@ -341,23 +355,125 @@ public class RouteController {
     @PutMapping("/{routeId}/updateSalesmanPosition")
     public ResponseEntity<PagedModel<ClientResponseModel>> updateSalesmanPosition(
             @PathVariable String routeId,
-            @RequestBody @Valid GeoCord currentSalesmanPosition
+            @RequestBody @Valid GeoCord currentSalesmanPosition,
+            @Parameter(name = "timestamp", description = "When the device recorded the position, the time of the request if absent")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant timestamp
+    ) {
+        Salesman salesman = SecurityUtils.getCurrentSalesman();
+        boolean latest = nearbyProspectService.updateSalesmanPosition(routeId, salesman, currentSalesmanPosition, timestamp);
+
+        // A position older than the one of the route, e.g. sent late, isn't where the salesman is
+        GeoCord position = latest ? currentSalesmanPosition : routeService.getSalesmanCurrentPosition(routeId, salesman);
+        return ResponseEntity.ok(findNearbyClients(routeId, salesman, position));
+    }
+
+    @Operation(summary = "Add several salesman positions to the route, e.g. recorded while offline",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The salesman positions have been added, if there are clients near the latest one, they are returned"),
+                    @ApiResponse(responseCode = "400", description = "client error"),
+                    @ApiResponse(responseCode = "500", description = "Server error")})
+    @PutMapping("/{routeId}/updateSalesmanPositions")
+    public ResponseEntity<PagedModel<ClientResponseModel>> updateSalesmanPositions(
+            @PathVariable String routeId,
+            @RequestBody @Valid SalesmanPositionsRequestModel salesmanPositions
+    ) {
+        Salesman salesman = SecurityUtils.getCurrentSalesman();
+        GeoCord latestPosition = nearbyProspectService.updateSalesmanPositions(routeId, salesman, salesmanPositions.positions());
+
+        // The route may already have a position newer than the whole batch
+        GeoCord position = latestPosition != null ? latestPosition : routeService.getSalesmanCurrentPosition(routeId, salesman);
+        return ResponseEntity.ok(findNearbyClients(routeId, salesman, position));
+    }
+
+    @Operation(
+            summary = "Follow the prospects near the salesman during a route",
+            description = "Server-Sent Events stream: first a 'snapshot' event with all the prospects nearby, maybe none, "
+                    + "then after each position added, an 'enter' event with the prospects now nearby, "
+                    + "and a 'leave' event with the ids of the prospects not nearby anymore",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The stream of the nearby prospects events"),
+                    @ApiResponse(responseCode = "400", description = "Client error"),
+                    @ApiResponse(responseCode = "500", description = "Server error")
+            }
+    )
+    @GetMapping(value = "/{routeId}/nearbyClients/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter followNearbyClients(
+            @Parameter(name = "routeId", description = "The route id")
+            @PathVariable String routeId
+    ) {
+        Salesman salesman = SecurityUtils.getCurrentSalesman();
+        return nearbyProspectService.subscribe(routeId, salesman);
+    }
+
+    @Operation(summary = "Add a salesman position to the route, the changes of the nearby prospects are sent to the stream of the route",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The salesman position has been added"),
+                    @ApiResponse(responseCode = "400", description = "client error"),
+                    @ApiResponse(responseCode = "500", description = "Server error")})
+    @PostMapping("/{routeId}/positions")
+    public ResponseEntity<Status> addSalesmanPosition(
+            @Parameter(name = "routeId", description = "The route id")
+            @PathVariable String routeId,
+            @RequestBody @Valid GeoCord currentSalesmanPosition,
+            @Parameter(name = "timestamp", description = "When the device recorded the position, the time of the request if absent")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant timestamp
+    ) {
+        Salesman salesman = SecurityUtils.getCurrentSalesman();
+        nearbyProspectService.updateSalesmanPosition(routeId, salesman, currentSalesmanPosition, timestamp);
+
+        return ResponseEntity.ok(new Status(true));
+    }
+
+    @Operation(summary = "Get the positions of the salesman during a route, in a time range",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "The positions sorted by timestamp"),
+                    @ApiResponse(responseCode = "400", description = "client error"),
+                    @ApiResponse(responseCode = "500", description = "Server error")})
+    @GetMapping("/{routeId}/positions")
+    public ResponseEntity<CollectionModel<SalesmanPositionResponseModel>> getSalesmanTrace(
+            @Parameter(name = "routeId", description = "The route id")
+            @PathVariable String routeId,
+
+            @Parameter(name = "from", description = "The start of the range, inclusive, the first position if missing")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+
+            @Parameter(name = "to", description = "The end of the range, exclusive, the last position if missing")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+
+            @Parameter(name = "limit", description = "The max number of positions, at most " + MAX_TRACE_POSITIONS)
+            @RequestParam(defaultValue = "" + MAX_TRACE_POSITIONS) int limit
     ) {
         Salesman salesman = SecurityUtils.getCurrentSalesman();
-        routeService.updateSalesmanPosition(routeId, salesman, currentSalesmanPosition);
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(routeId, salesman, new GeoJsonPoint(currentSalesmanPosition.longitude(), currentSalesmanPosition.latitude()), List.of(), new Distance(1, Metrics.KILOMETERS));
-
-        List<Client> clients = nearbyClients.stream()
-                .map(client -> {
-                    // we retrieve the all the fields of the client
-                    return clientService.findByIdAndConnectedSalesman(client.getId(), salesman);
-                })
+
+        List<SalesmanPositionResponseModel> positions = routeService.getSalesmanTrace(routeId, salesman, from, to, Math.clamp(limit, 1, MAX_TRACE_POSITIONS)).stream()
+                .map(SalesmanPositionResponseModel::new)
                 .toList();
-        int pageSize = Math.max(clients.size(), 1); // Ensure page size is at least 1
-        Page<Client> clientsPage = new PageImpl<>(clients, PageRequest.of(0, pageSize), clients.size());
+        return ResponseEntity.ok(CollectionModel.of(positions));
+    }
 
-        PagedModel<ClientResponseModel> pagedModel = clientPagedModelAssembler.toModel(clientsPage);
+    /**
+     * Find the prospects near the salesman.
+     *
+     * @param routeId  the route ID
+     * @param salesman the connected salesman
+     * @param position the position of the salesman
+     * @return the page of the nearby prospects
+     */
+    private PagedModel<ClientResponseModel> findNearbyClients(String routeId, Salesman salesman, GeoCord position) {
+        List<ClientView> clients = List.of();
+        // A route created before its position was stored may have none
+        if (position != null) {
+            GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(routeId, salesman, new GeoJsonPoint(position.longitude(), position.latitude()), List.of(), new Distance(1, Metrics.KILOMETERS));
+
+            // we retrieve all the fields of the clients at once
+            List<Integer> ids = nearbyClients.getContent().stream()
+                    .map(client -> client.getContent().getId())
+                    .toList();
+            clients = clientService.findAllViewsByIdAndConnectedSalesman(ids, salesman);
+        }
+        int pageSize = Math.max(clients.size(), 1); // Ensure page size is at least 1
+        Page<ClientView> clientsPage = new PageImpl<>(clients, PageRequest.of(0, pageSize), clients.size());
 
-        return ResponseEntity.ok(pagedModel);
+        return clientPagedModelAssembler.toModelFromViews(clientsPage);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+/*
+ * RouteOwner.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes;
+
+/**
+ * Projection of a route with only the fields needed to check who owns it,
+ * so the clients of the route aren't read.
+ *
+ * @param id         the route ID
+ * @param salesmanId the ID of the salesman who owns the route
+ */
+public record RouteOwner(String id, Integer salesmanId) {
+}
@@ -12,10 +12,19 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RouteRepository extends MongoRepository<Route, String> {
 
+    /**
+     * Finds who owns a route, reading only the ID and the salesman ID of the document.
+     *
+     * @param id the ID of the route
+     * @return the owner of the route, or empty if it doesn't exist
+     */
+    Optional<RouteOwner> findOwnerById(String id);
+
     /**
      * Finds a page of {@link Route} entities by the salesman's ID.
      *
@@ -5,36 +5,43 @@
 
 package fr.iut.pathpilotapi.routes;
 
+import com.mongodb.client.result.UpdateResult;
 import fr.iut.pathpilotapi.GeoCord;
+import fr.iut.pathpilotapi.clients.entity.ClientCategory;
 import fr.iut.pathpilotapi.clients.entity.MongoClient;
-import fr.iut.pathpilotapi.clients.repository.MongoClientRepository;
 import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
+import fr.iut.pathpilotapi.exceptions.RouteStateException;
 import fr.iut.pathpilotapi.exceptions.SalesmanBelongingException;
 import fr.iut.pathpilotapi.itineraries.Itinerary;
 import fr.iut.pathpilotapi.itineraries.ItineraryService;
 import fr.iut.pathpilotapi.itineraries.dto.ClientDTO;
 import fr.iut.pathpilotapi.routes.dto.ClientState;
 import fr.iut.pathpilotapi.routes.dto.RouteClient;
+import fr.iut.pathpilotapi.routes.dto.SalesmanPositionRequestModel;
+import fr.iut.pathpilotapi.routes.nearby.ProspectIndex;
+import fr.iut.pathpilotapi.routes.position.SalesmanPosition;
+import fr.iut.pathpilotapi.routes.position.SalesmanPositionStore;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.geo.Distance;
-import org.springframework.data.geo.Point;
+import org.springframework.data.geo.GeoResults;
 import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.geo.GeoJsonLineString;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.stream.Collectors;
 
+import static fr.iut.pathpilotapi.Constants.MAX_NEARBY_CLIENTS;
 import static org.springframework.data.mongodb.core.query.Criteria.where;
 import static org.springframework.data.mongodb.core.query.Query.query;
 
@@ -47,13 +54,37 @@ public class RouteService {
 
     public static final String ROUTE_NOT_BELONGS_TO_SALESMAN = "Route with ID: %s does not belong to the connected salesman.";
 
+    public static final String ROUTE_STATE_NOT_ALLOWED = "Route with ID: %s can't go to the state %s from its current state.";
+
+    /**
+     * States from which a route can be started, a route created without a state isn't started
+     */
+    private static final List<RouteState> STARTABLE_STATES = Arrays.asList(RouteState.NOT_STARTED, null);
+
+    /**
+     * States from which a route can be stopped
+     */
+    private static final List<RouteState> STOPPABLE_STATES = Arrays.asList(RouteState.NOT_STARTED, null, RouteState.IN_PROGRESS, RouteState.PAUSED);
+
+    /**
+     * Field of the latest position of the salesman in a route document
+     */
+    static final String SALESMAN_CURRENT_POSITION = "salesman_current_position";
+
+    /**
+     * Field of the time the latest position of the salesman was recorded in a route document
+     */
+    static final String SALESMAN_CURRENT_POSITION_TIMESTAMP = "salesman_current_position_timestamp";
+
     private final ItineraryService itineraryService;
 
     private final MongoTemplate mongoTemplate;
 
     private final RouteRepository routeRepository;
 
-    private final MongoClientRepository mongoClientRepository;
+    private final SalesmanPositionStore salesmanPositionStore;
+
+    private final ProspectIndex prospectIndex;
 
     /**
      * Delete all routes from the database owned by the salesman and by itineraryId
@@ -87,9 +118,7 @@ public class RouteService {
         }
         route.setClients(routeClients);
 
-        ArrayList<Point> positions = new ArrayList<>();
-        positions.add(new Point(salesman.getLongHomeAddress(), salesman.getLatHomeAddress()));
-        route.setSalesmanPositions(new GeoJsonLineString(positions));
+        route.setSalesmanCurrentPosition(new GeoJsonPoint(salesman.getLongHomeAddress(), salesman.getLatHomeAddress()));
 
         route.setStartDate(new Date());
 
@@ -102,9 +131,10 @@ public class RouteService {
      * @param routeId         the ID of the route to start the route
      * @param currentPosition the current position of the salesman
      * @param salesman        who started the route
+     * @throws RouteStateException if the route is already started
      */
     public void startRoute(String routeId, GeoCord currentPosition, Salesman salesman) {
-        updateRouteStateWithSalesmanCord(routeId, currentPosition, RouteState.IN_PROGRESS, salesman, true);
+        updateRouteStateWithSalesmanCord(routeId, currentPosition, STARTABLE_STATES, salesman, true);
     }
 
     /**
@@ -113,37 +143,32 @@ public class RouteService {
      * @param routeId         the ID of the route to resume the route
      * @param currentPosition the current position of the salesman
      * @param salesman        who resumes the route
+     * @throws RouteStateException if the route isn't paused
      */
     public void resumeRoute(String routeId, GeoCord currentPosition, Salesman salesman) {
-        updateRouteStateWithSalesmanCord(routeId, currentPosition, RouteState.IN_PROGRESS, salesman, false);
+        updateRouteStateWithSalesmanCord(routeId, currentPosition, List.of(RouteState.PAUSED), salesman, false);
     }
 
     /**
-     * Update the route state with the salesman current position
+     * Set the route in progress with the salesman current position
      *
      * @param routeId         the ID of the route to update the state
      * @param currentPosition the current position of the salesman
-     * @param state           the state to set
+     * @param previousStates  the states from which the route can be set in progress
      * @param salesman        who updates
      * @param setStartDate    if true, set the start date
      */
-    private void updateRouteStateWithSalesmanCord(String routeId, GeoCord currentPosition, RouteState state, Salesman salesman, boolean setStartDate) {
-        Route route = findByIdAndConnectedSalesman(routeId, salesman);
-        route.setState(state);
+    private void updateRouteStateWithSalesmanCord(String routeId, GeoCord currentPosition, List<RouteState> previousStates, Salesman salesman, boolean setStartDate) {
+        Instant now = Instant.now();
+        Update update = new Update().set("state", RouteState.IN_PROGRESS)
+                .set(SALESMAN_CURRENT_POSITION, new GeoJsonPoint(currentPosition.longitude(), currentPosition.latitude()))
+                .set(SALESMAN_CURRENT_POSITION_TIMESTAMP, now);
         if (setStartDate) {
-            route.setStartDate(new Date());
+            update.set("startDate", Date.from(now));
         }
-        List<Point> points = new ArrayList<>(route.getSalesmanPositions().getCoordinates());
-        points.add(new Point(currentPosition.longitude(), currentPosition.latitude()));
-        route.setSalesmanPositions(new GeoJsonLineString(points));
-        routeRepository.save(route);
+        updateRouteState(routeId, RouteState.IN_PROGRESS, previousStates, update, salesman);
 
-        Update update = new Update().set("state", state)
-                .set("salesman_current_position", new GeoJsonPoint(currentPosition.longitude(), currentPosition.latitude()));
-        if (setStartDate) {
-            update.set("startDate", new Date());
-        }
-        mongoTemplate.updateFirst(query(where("id").is(routeId)), update, Route.class);
+        salesmanPositionStore.insertAll(List.of(SalesmanPosition.of(routeId, salesman.getId(), currentPosition, now)));
     }
 
     /**
@@ -151,9 +176,10 @@ public class RouteService {
      *
      * @param routeId  the ID of the route to pause the route
      * @param salesman who pause the route
+     * @throws RouteStateException if the route isn't in progress
      */
     public void pauseRoute(String routeId, Salesman salesman) {
-        updateRouteState(routeId, RouteState.PAUSED, salesman);
+        updateRouteState(routeId, RouteState.PAUSED, List.of(RouteState.IN_PROGRESS), new Update().set("state", RouteState.PAUSED), salesman);
     }
 
     /**
@@ -161,29 +187,40 @@ public class RouteService {
      *
      * @param routeId  the ID of the route to stop the route
      * @param salesman who stop the route
+     * @throws RouteStateException if the route is already stopped or finished
      */
     public void stopRoute(String routeId, Salesman salesman) {
-        updateRouteState(routeId, RouteState.STOPPED, salesman);
+        updateRouteState(routeId, RouteState.STOPPED, STOPPABLE_STATES, new Update().set("state", RouteState.STOPPED), salesman);
     }
 
     /**
      * Set the route state to one of the {@link RouteState} values
+     * <p>
+     * The update is a single atomic operation, filtered on the route, its salesman and its allowed previous states,
+     * so two devices changing the state at the same time can't both succeed.
+     * The route is only read when it isn't updated, to throw the right exception.
      *
-     * @param routeId  the ID of the route to set the state
-     * @param state    the state to set
-     * @param salesman who set the state
+     * @param routeId        the ID of the route to set the state
+     * @param state          the state to set
+     * @param previousStates the states from which the route can go to the new state
+     * @param update         the update setting the state, and the other fields changed with it
+     * @param salesman       who set the state
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     * @throws RouteStateException        if the route isn't in one of the previous states
      */
-    public void updateRouteState(String routeId, RouteState state, Salesman salesman) {
-        Route route = findByIdAndConnectedSalesman(routeId, salesman);
-        route.setState(state);
-        routeRepository.save(route);
-
-        mongoTemplate.updateFirst(query(where("id").is(routeId)),
-                new Update().set("state", state),
-                Route.class);
+    private void updateRouteState(String routeId, RouteState state, List<RouteState> previousStates, Update update, Salesman salesman) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                query(where("id").is(routeId).and("salesmanId").is(salesman.getId()).and("state").in(previousStates)),
+                update, Route.class);
+
+        if (result.getMatchedCount() == 0) {
+            // The route doesn't exist, belongs to another salesman or isn't in one of the previous states
+            checkRouteBelongsToSalesman(routeId, salesman);
+            throw new RouteStateException(String.format(ROUTE_STATE_NOT_ALLOWED, routeId, state));
+        }
     }
 
-
     /**
      * Find a route by its ID and the connected salesman
      *
@@ -202,6 +239,23 @@ public class RouteService {
         return route;
     }
 
+    /**
+     * Check that a route exists and belongs to the connected salesman, reading only its owner.
+     *
+     * @param routeId  the ID of the route
+     * @param salesman the connected salesman
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     */
+    public void checkRouteBelongsToSalesman(String routeId, Salesman salesman) {
+        RouteOwner owner = routeRepository.findOwnerById(routeId)
+                .orElseThrow(() -> new ObjectNotFoundException("Route not found with ID: " + routeId));
+
+        if (!salesman.getId().equals(owner.salesmanId())) {
+            throw new SalesmanBelongingException(String.format(ROUTE_NOT_BELONGS_TO_SALESMAN, routeId));
+        }
+    }
+
     /**
      * Check if the route belongs to the salesman.
      *
@@ -226,8 +280,11 @@ public class RouteService {
      * @throws IllegalArgumentException if the route does not belong to the salesman
      */
     public void deleteByIdAndConnectedSalesman(String routeId, Salesman salesman) {
+        checkRouteBelongsToSalesman(routeId, salesman);
+
         // Perform the delete operation
-        routeRepository.delete(findByIdAndConnectedSalesman(routeId, salesman));
+        routeRepository.deleteById(routeId);
+        salesmanPositionStore.deleteAllByRouteId(routeId);
     }
 
     /**
@@ -240,12 +297,7 @@ public class RouteService {
      * @throws IllegalArgumentException if the route does not belong to the salesman
      */
     public void setClientVisited(Integer clientId, String routeId, Salesman salesman) {
-        // we check if the client is in the route and the route belongs to the salesman
-        RouteClient routeClient = getClientInRoute(clientId, routeId, salesman);
-        routeClient.setState(ClientState.VISITED);
-        routeRepository.save(findByIdAndConnectedSalesman(routeId, salesman));
-        mongoTemplate.updateFirst(query(where("id").is(routeId).and("clients.client.id").is(clientId)),
-                new Update().set("clients.$.state", ClientState.VISITED), Route.class);
+        updateClientState(clientId, routeId, ClientState.VISITED, salesman);
     }
 
     /**
@@ -258,78 +310,200 @@ public class RouteService {
      * @throws IllegalArgumentException if the route does not belong to the salesman
      */
     public void setClientSkipped(Integer clientId, String routeId, Salesman salesman) {
-        RouteClient routeClient = getClientInRoute(clientId, routeId, salesman);
-        routeClient.setState(ClientState.SKIPPED);
-        routeRepository.save(findByIdAndConnectedSalesman(routeId, salesman));
-        mongoTemplate.updateFirst(query(where("id").is(routeId).and("clients.client.id").is(clientId)),
-                new Update().set("clients.$.state", ClientState.SKIPPED), Route.class);
+        updateClientState(clientId, routeId, ClientState.SKIPPED, salesman);
+    }
+
+    /**
+     * Set the state of a client in a route
+     * <p>
+     * The client is updated with a single positional update, filtered on the route, its salesman and the client.
+     * The route is only read when it isn't updated, to throw the right exception.
+     *
+     * @param clientId the client ID
+     * @param routeId  the route ID
+     * @param state    the state to set
+     * @param salesman the connected salesman
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     * @throws IllegalArgumentException   if the client is not in the route
+     */
+    private void updateClientState(Integer clientId, String routeId, ClientState state, Salesman salesman) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                query(where("id").is(routeId).and("salesmanId").is(salesman.getId()).and("clients.client.id").is(clientId)),
+                new Update().set("clients.$.state", state), Route.class);
+
+        if (result.getMatchedCount() == 0) {
+            // The route doesn't exist, belongs to another salesman or doesn't contain the client
+            checkRouteBelongsToSalesman(routeId, salesman);
+            throw new IllegalArgumentException("Client with ID: " + clientId + " is not in the route with ID: " + routeId);
+        }
     }
 
     /**
      * Find nearby clients from a point
+     * <p>
+     * The prospects of the salesman are filtered, sorted by distance and limited by MongoDB in a single {@code $geoNear},
+     * so only the returned clients are sent by the database.
+     * When the {@link ProspectIndex} is enabled and has loaded the prospects of the salesman, it answers instead of MongoDB.
      *
+     * @param routeId        the route ID
+     * @param salesman       the connected salesman
      * @param point          the point to search from
      * @param clientsToAvoid list of clients to avoid
-     * @param distance
-     * @return the list of nearby clients
+     * @param distance       the max distance from the point
+     * @return the nearby clients with their distance, the nearest first
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
      */
-    public Page<MongoClient> findNearbyClients(String routeId, Salesman salesman, GeoJsonPoint point, List<MongoClient> clientsToAvoid, Distance distance) {
-        Route route = findByIdAndConnectedSalesman(routeId, salesman);
-
-        List<MongoClient> clients = mongoClientRepository.findByLocationNear(point, distance).stream()
-                .filter(client -> {
-                    if (!client.getCategory().getName().equals("PROSPECT")) {
-                        return false;
-                    }
-                    return !clientsToAvoid.contains(client);
-                }).collect(Collectors.toList());
-        if (clients.isEmpty()) {
-            return Page.empty();
+    public GeoResults<MongoClient> findNearbyClients(String routeId, Salesman salesman, GeoJsonPoint point, List<MongoClient> clientsToAvoid, Distance distance) {
+        checkRouteBelongsToSalesman(routeId, salesman);
+
+        List<Integer> idsToAvoid = clientsToAvoid.stream().map(MongoClient::getId).toList();
+        GeoResults<MongoClient> indexedClients = prospectIndex.findNearby(salesman.getId(), point, idsToAvoid, distance, MAX_NEARBY_CLIENTS);
+        if (indexedClients != null) {
+            return indexedClients;
         }
 
-        return new PageImpl<>(clients, PageRequest.of(0, clients.size()), clients.size());
+        NearQuery nearQuery = NearQuery.near(point)
+                .spherical(true)
+                .maxDistance(distance)
+                .query(query(where("salesmanId").is(salesman.getId())
+                        .and("category.name").is(ClientCategory.PROSPECT.getName())
+                        .and("id").nin(idsToAvoid)))
+                .limit(MAX_NEARBY_CLIENTS);
+        return mongoTemplate.geoNear(nearQuery, MongoClient.class);
     }
 
-
     /**
      * Update the salesman position in the route
+     * <p>
+     * The route only keeps the latest position, set with a single atomic update filtered on the route and its salesman,
+     * and only if the position was recorded after the one already in the route.
+     * The position is then added to the trace of the route, in the {@link SalesmanPositionStore}.
+     * The route is only read when it isn't updated, to throw the right exception.
      *
      * @param routeId                 the route ID
      * @param salesman                the connected salesman
      * @param currentSalesmanPosition the new position of the salesman
-     * @return the list of nearby clients
-     * @throws IllegalArgumentException if the route does not belong to the salesman
+     * @param timestamp               when the device recorded the position, or null if it was just recorded
+     * @return true if the position is now the latest position of the route
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
      */
-    public void updateSalesmanPosition(String routeId, Salesman salesman, GeoCord currentSalesmanPosition) {
-        Route route = findByIdAndConnectedSalesman(routeId, salesman);
-        GeoJsonPoint newPoint = new GeoJsonPoint(currentSalesmanPosition.longitude(), currentSalesmanPosition.latitude());
-
-        ArrayList<Point> positions = new ArrayList<>(route.getSalesmanPositions().getCoordinates());
-        positions.add(newPoint);
+    public boolean updateSalesmanPosition(String routeId, Salesman salesman, GeoCord currentSalesmanPosition, Instant timestamp) {
+        Instant recordedAt = notAfterNow(timestamp);
+        boolean latest = setSalesmanCurrentPosition(routeId, salesman, currentSalesmanPosition, recordedAt);
+        salesmanPositionStore.insertAll(List.of(SalesmanPosition.of(routeId, salesman.getId(), currentSalesmanPosition, recordedAt)));
+        return latest;
+    }
 
-        GeoJsonLineString updatedLineString = new GeoJsonLineString(positions);
-        route.setSalesmanPositions(updatedLineString);
+    /**
+     * Add several positions of the salesman to the route, e.g. recorded while his device was offline.
+     * <p>
+     * The latest position is set in the route, unless the route already has a newer one,
+     * then all of them are added to the trace with a single insert.
+     *
+     * @param routeId   the route ID
+     * @param salesman  the connected salesman
+     * @param positions the positions of the salesman
+     * @return the latest position, or null if the route already has a newer one
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     */
+    public GeoCord updateSalesmanPositions(String routeId, Salesman salesman, List<SalesmanPositionRequestModel> positions) {
+        List<SalesmanPosition> trace = positions.stream()
+                .map(position -> SalesmanPosition.of(routeId, salesman.getId(), position.position(), notAfterNow(position.timestamp())))
+                .toList();
+        SalesmanPosition latestPosition = trace.stream()
+                .max(Comparator.comparing(SalesmanPosition::getTimestamp))
+                .orElseThrow();
+        boolean latest = setSalesmanCurrentPosition(routeId, salesman, latestPosition.toGeoCord(), latestPosition.getTimestamp());
+
+        salesmanPositionStore.insertAll(trace);
+        return latest ? latestPosition.toGeoCord() : null;
+    }
 
-        routeRepository.save(route);
+    /**
+     * Get the latest position of the salesman in a route, reading only this field and the owner of the route.
+     *
+     * @param routeId  the route ID
+     * @param salesman the connected salesman
+     * @return the latest position, or null if the route has none
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     */
+    public GeoCord getSalesmanCurrentPosition(String routeId, Salesman salesman) {
+        Query routeQuery = query(where("id").is(routeId));
+        routeQuery.fields().include("salesmanId", SALESMAN_CURRENT_POSITION);
+        Route route = mongoTemplate.findOne(routeQuery, Route.class);
+        if (route == null) {
+            throw new ObjectNotFoundException("Route not found with ID: " + routeId);
+        }
+        if (!salesman.getId().equals(route.getSalesmanId())) {
+            throw new SalesmanBelongingException(String.format(ROUTE_NOT_BELONGS_TO_SALESMAN, routeId));
+        }
+        GeoJsonPoint position = route.getSalesmanCurrentPosition();
+        return position == null ? null : new GeoCord(position.getY(), position.getX());
     }
 
     /**
-     * Get the client in the route
+     * Get the positions of the salesman during a route, recorded in a time range.
      *
-     * @param clientId the client ID
      * @param routeId  the route ID
      * @param salesman the connected salesman
-     * @return the RouteClient object
-     * @throws IllegalArgumentException if the client is not in the route
-     * @throws IllegalArgumentException if the route does not belong to the salesman
+     * @param from     the start of the range, inclusive, or null to start with the first position
+     * @param to       the end of the range, exclusive, or null to end with the last position
+     * @param limit    the max number of positions
+     * @return the positions sorted by timestamp
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     */
+    public List<SalesmanPosition> getSalesmanTrace(String routeId, Salesman salesman, Instant from, Instant to, int limit) {
+        checkRouteBelongsToSalesman(routeId, salesman);
+        return salesmanPositionStore.findTrace(routeId, from, to, limit);
+    }
+
+    /**
+     * Set the latest position of the salesman in the route, if it was recorded after the one already in the route.
+     * <p>
+     * A position uploaded late, e.g. by a device that was offline, doesn't move the salesman back.
+     *
+     * @param routeId   the route ID
+     * @param salesman  the connected salesman
+     * @param position  the position of the salesman
+     * @param timestamp when the position was recorded
+     * @return true if the position was set
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
      */
-    private RouteClient getClientInRoute(Integer clientId, String routeId, Salesman salesman) {
-        Route route = this.findByIdAndConnectedSalesman(routeId, salesman);
+    private boolean setSalesmanCurrentPosition(String routeId, Salesman salesman, GeoCord position, Instant timestamp) {
+        UpdateResult result = mongoTemplate.updateFirst(
+                query(where("id").is(routeId).and("salesmanId").is(salesman.getId())
+                        // The routes created before the timestamp was stored don't have it
+                        .orOperator(where(SALESMAN_CURRENT_POSITION_TIMESTAMP).lt(timestamp),
+                                where(SALESMAN_CURRENT_POSITION_TIMESTAMP).exists(false))),
+                new Update().set(SALESMAN_CURRENT_POSITION, new GeoJsonPoint(position.longitude(), position.latitude()))
+                        .set(SALESMAN_CURRENT_POSITION_TIMESTAMP, timestamp),
+                Route.class);
 
-        return route.getClients().stream()
-                .filter(client -> client.getClient().getId().equals(clientId))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Client with ID: " + clientId + " is not in the route with ID: " + routeId));
+        if (result.getMatchedCount() == 0) {
+            // The route doesn't exist, belongs to another salesman, or already has a newer position
+            checkRouteBelongsToSalesman(routeId, salesman);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * The positions are stamped by the device, the server clock is used when it has no timestamp or when it's ahead,
+     * else a single position from the future would block the next ones.
+     *
+     * @param timestamp the timestamp sent by the device, or null
+     * @return the time the position was recorded
+     */
+    private static Instant notAfterNow(Instant timestamp) {
+        Instant now = Instant.now();
+        return timestamp == null || timestamp.isAfter(now) ? now : timestamp;
     }
 
     /**
@@ -342,7 +516,9 @@ public class RouteService {
         List<Route> routes = routeRepository.findAllRoutesBySalesmanId(salesman.getId());
         for (Route route : routes) {
             if (route.getClients().stream().anyMatch(routeClient -> routeClient.getClient().getId().equals(id))) {
-                routeRepository.delete(route);
+                // Deleted by ID, the route is deleted even if its state or position changed since it was read
+                routeRepository.deleteById(route.getId());
+                salesmanPositionStore.deleteAllByRouteId(route.getId());
             }
         }
     }
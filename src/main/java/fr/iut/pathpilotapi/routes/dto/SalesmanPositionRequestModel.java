@@ -0,0 +1,25 @@
+/*
+ * SalesmanPositionRequestModel.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.dto;
+
+import fr.iut.pathpilotapi.GeoCord;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+
+@Schema(description = "A position of the salesman, recorded by his device")
+public record SalesmanPositionRequestModel(
+        @NotNull @Valid
+        @Schema(description = "The position of the salesman")
+        GeoCord position,
+
+        @NotNull
+        @Schema(description = "When the position was recorded", example = "2026-10-19T08:30:00Z")
+        Instant timestamp
+) {
+}
@@ -0,0 +1,26 @@
+/*
+ * SalesmanPositionResponseModel.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.dto;
+
+import fr.iut.pathpilotapi.GeoCord;
+import fr.iut.pathpilotapi.routes.position.SalesmanPosition;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.Instant;
+
+@Schema(description = "A position of the salesman in the trace of a route")
+public record SalesmanPositionResponseModel(
+        @Schema(description = "The position of the salesman")
+        GeoCord position,
+
+        @Schema(description = "When the position was recorded", example = "2026-10-19T08:30:00Z")
+        Instant timestamp
+) {
+
+    public SalesmanPositionResponseModel(SalesmanPosition salesmanPosition) {
+        this(salesmanPosition.toGeoCord(), salesmanPosition.getTimestamp());
+    }
+}
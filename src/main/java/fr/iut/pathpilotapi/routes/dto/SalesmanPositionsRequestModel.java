@@ -0,0 +1,25 @@
+/*
+ * SalesmanPositionsRequestModel.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+import static fr.iut.pathpilotapi.Constants.MAX_POSITIONS_BATCH;
+
+@Schema(description = "Positions of the salesman recorded while his device was offline")
+public record SalesmanPositionsRequestModel(
+        @NotEmpty
+        @Size(max = MAX_POSITIONS_BATCH)
+        @Schema(description = "The positions, they are sorted by timestamp")
+        List<@Valid @NotNull SalesmanPositionRequestModel> positions
+) {
+}
@@ -0,0 +1,320 @@
+/*
+ * NearbyProspectService.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.nearby;
+
+import fr.iut.pathpilotapi.GeoCord;
+import fr.iut.pathpilotapi.clients.dto.ClientResponseModel;
+import fr.iut.pathpilotapi.clients.dto.ClientResponseModelAssembler;
+import fr.iut.pathpilotapi.clients.service.ClientService;
+import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
+import fr.iut.pathpilotapi.exceptions.SalesmanBelongingException;
+import fr.iut.pathpilotapi.routes.RouteService;
+import fr.iut.pathpilotapi.routes.dto.SalesmanPositionRequestModel;
+import fr.iut.pathpilotapi.salesman.Salesman;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Stream the changes of the prospects near the salesman during a route.
+ * <p>
+ * The device follows the stream of a route, then only sends its positions.
+ * A {@code snapshot} event is sent first with all the prospects near the last position, maybe none,
+ * so the device can reset its set, e.g. when it reconnects.
+ * After each position, an {@code enter} event is sent with the prospects that are now near the salesman,
+ * and a {@code leave} event with the IDs of the ones that aren't anymore.
+ * The prospects that stay near aren't sent again.
+ * <br>
+ * The nearby prospects of a route are kept while the device is disconnected,
+ * until the route is {@link #complete(String) completed} or idle for a time to live.
+ */
+@Service
+public class NearbyProspectService {
+
+    /**
+     * Distance under which a prospect is near the salesman
+     */
+    public static final Distance NEARBY_DISTANCE = new Distance(1, Metrics.KILOMETERS);
+
+    private final RouteService routeService;
+
+    private final ClientService clientService;
+
+    private final ClientResponseModelAssembler clientResponseModelAssembler;
+
+    /**
+     * The nearby prospects of the routes followed since the idle time to live, by route ID
+     */
+    private final Map<String, NearbyProspects> routes = new ConcurrentHashMap<>();
+
+    /**
+     * Time after which a stream is closed, the device must follow the route again
+     */
+    private final Duration timeout;
+
+    /**
+     * Time in milliseconds after which a route without stream nor position is forgotten
+     */
+    private final long idleTimeToLive;
+
+    /**
+     * Time before which the idle routes aren't searched again, so they aren't searched on each position
+     */
+    private final AtomicLong nextEviction = new AtomicLong();
+
+    public NearbyProspectService(
+            RouteService routeService,
+            ClientService clientService,
+            ClientResponseModelAssembler clientResponseModelAssembler,
+            @Value("${pathpilot.nearby.stream.timeout:30m}") Duration timeout,
+            @Value("${pathpilot.nearby.stream.idle-ttl:1h}") Duration idleTimeToLive
+    ) {
+        this.routeService = routeService;
+        this.clientService = clientService;
+        this.clientResponseModelAssembler = clientResponseModelAssembler;
+        this.timeout = timeout;
+        this.idleTimeToLive = idleTimeToLive.toMillis();
+    }
+
+    /**
+     * Follow the prospects near the salesman during a route.
+     * <p>
+     * The prospects near the last position are sent immediately in a {@code snapshot} event.
+     * When the route isn't followed yet, they are searched around the position stored in the route.
+     *
+     * @param routeId  the route ID
+     * @param salesman the connected salesman
+     * @return the stream of the events
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     */
+    public SseEmitter subscribe(String routeId, Salesman salesman) {
+        routeService.checkRouteBelongsToSalesman(routeId, salesman);
+
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+        SseEmitter emitter = createEmitter();
+        emitter.onCompletion(() -> unsubscribe(routeId, emitter));
+        emitter.onTimeout(() -> unsubscribe(routeId, emitter));
+        emitter.onError(e -> unsubscribe(routeId, emitter));
+        // Touched in the map, so an idle route being evicted isn't followed again
+        NearbyProspects prospects = routes.compute(routeId, (id, existing) -> {
+            NearbyProspects followed = existing == null ? new NearbyProspects() : existing;
+            followed.touch(now);
+            return followed;
+        });
+
+        // The stream only receives the changes made after its snapshot
+        prospects.getLock().lock();
+        try {
+            if (!prospects.isInitialized()) {
+                GeoCord position = routeService.getSalesmanCurrentPosition(routeId, salesman);
+                prospects.update(position == null ? Set.of() : findNearbyIds(routeId, salesman, position));
+            }
+            // The route was completed since it was found in the map
+            if (prospects.isClosed()) {
+                emitter.complete();
+                return emitter;
+            }
+            if (send(emitter, prospects, "snapshot", toModels(prospects.getProspectIds(), salesman))) {
+                prospects.getEmitters().add(emitter);
+            }
+        } finally {
+            prospects.getLock().unlock();
+        }
+        return emitter;
+    }
+
+    /**
+     * Update the salesman position in the route, and send the changes of the nearby prospects to the streams.
+     * <p>
+     * Every position of a route is added here, so the streams never miss one.
+     *
+     * @param routeId   the route ID
+     * @param salesman  the connected salesman
+     * @param position  the new position of the salesman
+     * @param timestamp when the device recorded the position, or null if it was just recorded
+     * @return true if the position is now the latest position of the route
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     */
+    public boolean updateSalesmanPosition(String routeId, Salesman salesman, GeoCord position, Instant timestamp) {
+        boolean latest = routeService.updateSalesmanPosition(routeId, salesman, position, timestamp);
+        if (latest) {
+            notifyStreams(routeId, salesman, position);
+        }
+        return latest;
+    }
+
+    /**
+     * Add several positions of the salesman to the route, e.g. recorded while his device was offline,
+     * and send the changes of the prospects near the latest one to the streams.
+     *
+     * @param routeId   the route ID
+     * @param salesman  the connected salesman
+     * @param positions the positions of the salesman
+     * @return the latest position, or null if the route already has a newer one
+     * @throws ObjectNotFoundException    if the route is not found
+     * @throws SalesmanBelongingException if the route does not belong to the salesman
+     */
+    public GeoCord updateSalesmanPositions(String routeId, Salesman salesman, List<SalesmanPositionRequestModel> positions) {
+        GeoCord latestPosition = routeService.updateSalesmanPositions(routeId, salesman, positions);
+        if (latestPosition != null) {
+            notifyStreams(routeId, salesman, latestPosition);
+        }
+        return latestPosition;
+    }
+
+    /**
+     * Search the prospects near the new latest position of the route, and send their changes to the streams.
+     * <p>
+     * The nearby prospects are only searched if the route was followed by a stream since the idle time to live.
+     */
+    private void notifyStreams(String routeId, Salesman salesman, GeoCord position) {
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+        NearbyProspects prospects = routes.computeIfPresent(routeId, (id, followed) -> {
+            followed.touch(now);
+            return followed;
+        });
+        if (prospects == null) {
+            return;
+        }
+
+        // The events of two positions must not be mixed
+        prospects.getLock().lock();
+        try {
+            if (prospects.isClosed()) {
+                return;
+            }
+            NearbyProspects.Change change = prospects.update(findNearbyIds(routeId, salesman, position));
+            // Without stream, the set is only kept up to date for the next snapshot
+            if (change.isEmpty() || prospects.getEmitters().isEmpty()) {
+                return;
+            }
+
+            List<ClientResponseModel> entered = toModels(change.entered(), salesman);
+            for (SseEmitter emitter : prospects.getEmitters()) {
+                if (!entered.isEmpty()) {
+                    send(emitter, prospects, "enter", entered);
+                }
+                if (!change.left().isEmpty()) {
+                    send(emitter, prospects, "leave", change.left());
+                }
+            }
+        } finally {
+            prospects.getLock().unlock();
+        }
+    }
+
+    /**
+     * Close the streams of a route and forget its nearby prospects, e.g. when it's stopped or deleted.
+     *
+     * @param routeId the route ID
+     */
+    public void complete(String routeId) {
+        NearbyProspects prospects = routes.remove(routeId);
+        if (prospects == null) {
+            return;
+        }
+        // Under the lock, so a stream being added sees the route closed
+        prospects.getLock().lock();
+        try {
+            prospects.close();
+        } finally {
+            prospects.getLock().unlock();
+        }
+    }
+
+    /**
+     * @param routeId the route ID
+     * @return true if the nearby prospects of the route are kept
+     */
+    boolean isFollowed(String routeId) {
+        return routes.containsKey(routeId);
+    }
+
+    /**
+     * Create the stream of a device.
+     */
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    /**
+     * Remove a stream, the nearby prospects of the route are kept until the device reconnects.
+     */
+    void unsubscribe(String routeId, SseEmitter emitter) {
+        NearbyProspects prospects = routes.get(routeId);
+        if (prospects != null) {
+            prospects.getEmitters().remove(emitter);
+            // The idle time to live starts when the device disconnects
+            prospects.touch(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Forget the routes idle for the time to live.
+     * <p>
+     * The routes are only searched every half time to live, so a route stays 1.5 times it at most.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void evictIdle(long now) {
+        long next = nextEviction.get();
+        if (now < next || !nextEviction.compareAndSet(next, now + idleTimeToLive / 2)) {
+            return;
+        }
+        // One key at a time, so a route followed again meanwhile isn't removed
+        for (String routeId : routes.keySet()) {
+            routes.computeIfPresent(routeId, (id, prospects) -> prospects.isIdle(now, idleTimeToLive) ? null : prospects);
+        }
+    }
+
+    private Set<Integer> findNearbyIds(String routeId, Salesman salesman, GeoCord position) {
+        return routeService.findNearbyClients(routeId, salesman,
+                        new GeoJsonPoint(position.longitude(), position.latitude()), List.of(), NEARBY_DISTANCE)
+                .getContent().stream()
+                .map(result -> result.getContent().getId())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private List<ClientResponseModel> toModels(List<Integer> prospectIds, Salesman salesman) {
+        if (prospectIds.isEmpty()) {
+            return List.of();
+        }
+        return clientService.findAllViewsByIdAndConnectedSalesman(prospectIds, salesman).stream()
+                .map(clientResponseModelAssembler::toModel)
+                .toList();
+    }
+
+    /**
+     * @return false if the client is gone
+     */
+    private boolean send(SseEmitter emitter, NearbyProspects prospects, String eventName, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(eventName).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            prospects.getEmitters().remove(emitter);
+            return false;
+        }
+    }
+}
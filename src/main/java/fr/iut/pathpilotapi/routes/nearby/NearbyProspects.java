@@ -0,0 +1,131 @@
+/*
+ * NearbyProspects.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.nearby;
+
+import lombok.Getter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The prospects near the salesman during a route, and the streams that follow them.
+ * <p>
+ * Only the changes of the set are sent to the streams, so the prospects already sent aren't sent again.
+ * <br>
+ * The set is read and updated with the {@link #getLock() lock} held, a {@link ReentrantLock}
+ * so the virtual threads waiting for it while the prospects are searched and sent don't pin their carrier thread.
+ */
+public class NearbyProspects {
+
+    /**
+     * The prospects near the last position, in the order they were found
+     */
+    private final Set<Integer> prospectIds = new LinkedHashSet<>();
+
+    @Getter
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+    @Getter
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * True once the set was searched around a position, before it's empty only because it wasn't searched yet
+     */
+    @Getter
+    private boolean initialized;
+
+    /**
+     * True once the route is completed, a stream added after that would never be closed
+     */
+    @Getter
+    private boolean closed;
+
+    /**
+     * Last time a stream followed the route or a position was added, in milliseconds
+     */
+    private volatile long lastActivity = System.currentTimeMillis();
+
+    /**
+     * Replace the nearby prospects by the ones near the new position.
+     *
+     * @param nearbyIds the IDs of the prospects near the new position
+     * @return the prospects that entered and the ones that left the set
+     */
+    public Change update(Collection<Integer> nearbyIds) {
+        List<Integer> entered = new ArrayList<>();
+        for (Integer id : nearbyIds) {
+            if (!prospectIds.contains(id)) {
+                entered.add(id);
+            }
+        }
+        List<Integer> left = new ArrayList<>();
+        for (Integer id : prospectIds) {
+            if (!nearbyIds.contains(id)) {
+                left.add(id);
+            }
+        }
+        prospectIds.removeAll(left);
+        prospectIds.addAll(entered);
+        initialized = true;
+        return new Change(entered, left);
+    }
+
+    /**
+     * @return the IDs of the prospects near the last position
+     */
+    public List<Integer> getProspectIds() {
+        return List.copyOf(prospectIds);
+    }
+
+    /**
+     * Close the streams of the route, the ones that follow it later are closed immediately.
+     */
+    public void close() {
+        closed = true;
+        emitters.forEach(SseEmitter::complete);
+        emitters.clear();
+    }
+
+    /**
+     * Record an activity on the route, so it isn't forgotten.
+     *
+     * @param now the current time in milliseconds
+     */
+    public void touch(long now) {
+        lastActivity = now;
+    }
+
+    /**
+     * @param now            the current time in milliseconds
+     * @param idleTimeToLive the time in milliseconds after which a route without stream nor position is forgotten
+     * @return true if the route isn't followed by a stream and had no activity for the idle time to live
+     */
+    public boolean isIdle(long now, long idleTimeToLive) {
+        return emitters.isEmpty() && lastActivity + idleTimeToLive <= now;
+    }
+
+    /**
+     * The changes of the nearby prospects after a new position.
+     *
+     * @param entered the IDs of the prospects that are now near the salesman
+     * @param left    the IDs of the prospects that aren't near the salesman anymore
+     */
+    public record Change(List<Integer> entered, List<Integer> left) {
+
+        /**
+         * @return true if the set didn't change
+         */
+        public boolean isEmpty() {
+            return entered.isEmpty() && left.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * ProspectGrid.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.nearby;
+
+import fr.iut.pathpilotapi.GreatCircle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Grid of the prospects of a salesman, to find the ones near a point without reading them all.
+ * <p>
+ * The Earth is cut into cells of {@link #CELL_SIZE} degrees of latitude and longitude.
+ * The prospects of a cell are stored in flat primitive arrays,
+ * so a query only reads the cells around the point and compares their coordinates.
+ * <br>
+ * The distances are angles on the unit sphere, in radians, like the normalized value of a {@link org.springframework.data.geo.Distance}.
+ * <br>
+ * This class isn't thread-safe.
+ */
+public class ProspectGrid {
+
+    /**
+     * Size of a cell in degrees, about 1.1 km of latitude
+     */
+    public static final double CELL_SIZE = 0.01;
+
+    private static final int LAT_CELLS = (int) Math.round(180 / CELL_SIZE);
+
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_SIZE);
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    /**
+     * The key of the cell of each prospect, to remove it without searching it
+     */
+    private final Map<Integer, Long> cellKeys = new HashMap<>();
+
+    /**
+     * Add a prospect to the grid, or move it if it's already in.
+     *
+     * @param id        the ID of the prospect
+     * @param latitude  the latitude of the prospect, in degrees
+     * @param longitude the longitude of the prospect, in degrees
+     */
+    public void add(int id, double latitude, double longitude) {
+        remove(id);
+        long key = key(latCell(latitude), lonCell(longitude));
+        cells.computeIfAbsent(key, k -> new Cell()).add(id, latitude, longitude);
+        cellKeys.put(id, key);
+    }
+
+    /**
+     * Remove a prospect from the grid.
+     *
+     * @param id the ID of the prospect
+     * @return true if the prospect was in the grid
+     */
+    public boolean remove(int id) {
+        Long key = cellKeys.remove(id);
+        if (key == null) {
+            return false;
+        }
+        Cell cell = cells.get(key);
+        cell.remove(id);
+        if (cell.size == 0) {
+            cells.remove(key);
+        }
+        return true;
+    }
+
+    /**
+     * @param id the ID of the prospect
+     * @return true if the prospect is in the grid
+     */
+    public boolean contains(int id) {
+        return cellKeys.containsKey(id);
+    }
+
+    /**
+     * @return the number of prospects in the grid
+     */
+    public int size() {
+        return cellKeys.size();
+    }
+
+    /**
+     * Find the prospects near a point.
+     *
+     * @param latitude  the latitude of the point, in degrees
+     * @param longitude the longitude of the point, in degrees
+     * @param maxAngle  the max distance from the point, in radians
+     * @param excluded  the IDs of the prospects to skip
+     * @param limit     the max number of prospects returned
+     * @return the nearby prospects, the nearest first
+     */
+    public List<Neighbour> findWithin(double latitude, double longitude, double maxAngle, Collection<Integer> excluded, int limit) {
+        double latRadians = Math.toRadians(latitude);
+        double lonRadians = Math.toRadians(longitude);
+        double cosLat = Math.cos(latRadians);
+        List<Neighbour> neighbours = new ArrayList<>();
+
+        // Bounding box of the circle, a degree of longitude is shorter far from the equator
+        double deltaLat = Math.toDegrees(maxAngle);
+        double maxCosLat = Math.cos(Math.toRadians(Math.min(90, Math.abs(latitude) + deltaLat)));
+        double deltaLon = maxCosLat < 1e-9 ? 180 : deltaLat / maxCosLat;
+        int minLatCell = latCell(latitude - deltaLat);
+        int maxLatCell = latCell(latitude + deltaLat);
+        int minLonCell = (int) Math.floor((longitude - deltaLon + 180) / CELL_SIZE);
+        int maxLonCell = (int) Math.floor((longitude + deltaLon + 180) / CELL_SIZE);
+        long boxCells = (long) (maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1);
+
+        if (deltaLon >= 180 || boxCells >= cells.size()) {
+            // Reading every cell is faster than looking up each cell of the box
+            for (Cell cell : cells.values()) {
+                cell.collect(latRadians, lonRadians, cosLat, maxAngle, excluded, neighbours);
+            }
+        } else {
+            for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                for (int lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                    // The box may cross the antimeridian
+                    Cell cell = cells.get(key(latCell, Math.floorMod(lonCell, LON_CELLS)));
+                    if (cell != null) {
+                        cell.collect(latRadians, lonRadians, cosLat, maxAngle, excluded, neighbours);
+                    }
+                }
+            }
+        }
+
+        neighbours.sort(Comparator.comparingDouble(Neighbour::angle));
+        return neighbours.size() > limit ? neighbours.subList(0, limit) : neighbours;
+    }
+
+    private static int latCell(double latitude) {
+        return Math.clamp((int) Math.floor((latitude + 90) / CELL_SIZE), 0, LAT_CELLS - 1);
+    }
+
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_SIZE), LON_CELLS);
+    }
+
+    private static long key(int latCell, int lonCell) {
+        return (long) latCell * LON_CELLS + lonCell;
+    }
+
+    /**
+     * A prospect near the point.
+     *
+     * @param id        the ID of the prospect
+     * @param latitude  the latitude of the prospect, in degrees
+     * @param longitude the longitude of the prospect, in degrees
+     * @param angle     the distance from the point, in radians
+     */
+    public record Neighbour(int id, double latitude, double longitude, double angle) {
+    }
+
+    /**
+     * The prospects of a cell, in flat arrays grown when they are full.
+     */
+    private static class Cell {
+
+        private int[] ids = new int[4];
+
+        private double[] latitudes = new double[4];
+
+        private double[] longitudes = new double[4];
+
+        private int size;
+
+        void add(int id, double latitude, double longitude) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            ids[size] = id;
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    // The last prospect takes its place, the order doesn't matter
+                    size--;
+                    ids[i] = ids[size];
+                    latitudes[i] = latitudes[size];
+                    longitudes[i] = longitudes[size];
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Add the prospects of the cell close enough to the point, with their {@link GreatCircle} angle.
+         */
+        void collect(double latRadians, double lonRadians, double cosLat, double maxAngle,
+                     Collection<Integer> excluded, List<Neighbour> neighbours) {
+            for (int i = 0; i < size; i++) {
+                double otherLat = Math.toRadians(latitudes[i]);
+                double angle = GreatCircle.angle(latRadians, lonRadians, cosLat,
+                        otherLat, Math.toRadians(longitudes[i]), Math.cos(otherLat));
+                if (angle <= maxAngle && !excluded.contains(ids[i])) {
+                    neighbours.add(new Neighbour(ids[i], latitudes[i], longitudes[i], angle));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * ProspectIndex.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.nearby;
+
+import fr.iut.pathpilotapi.clients.entity.Client;
+import fr.iut.pathpilotapi.clients.entity.ClientCategory;
+import fr.iut.pathpilotapi.clients.entity.MongoClient;
+import fr.iut.pathpilotapi.clients.event.ClientCreatedEvent;
+import fr.iut.pathpilotapi.clients.event.ClientDeletedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metric;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * In memory index of the prospects of each salesman, to find the nearby prospects without querying MongoDB.
+ * <p>
+ * The prospects of a salesman are loaded from MongoDB in the background the first time he asks for them,
+ * MongoDB answers until they are loaded. Then the index is kept up to date with the created and deleted clients.
+ * The prospects of a salesman who doesn't search them anymore are evicted after an idle time to live.
+ * <br>
+ * The index only sees the clients created on this instance of the API, so it must be enabled only with a single instance.
+ */
+@Slf4j
+@Component
+public class ProspectIndex {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final boolean enabled;
+
+    /**
+     * Time in milliseconds after which the prospects of a salesman are evicted if he didn't search them
+     */
+    private final long idleTimeToLive;
+
+    private final Map<Integer, SalesmanProspects> salesmen = new ConcurrentHashMap<>();
+
+    /**
+     * Time before which the idle salesmen aren't searched again, so they aren't searched on each query
+     */
+    private final AtomicLong nextEviction = new AtomicLong();
+
+    public ProspectIndex(
+            MongoTemplate mongoTemplate,
+            @Value("${pathpilot.nearby.index.enabled:false}") boolean enabled,
+            @Value("${pathpilot.nearby.index.idle-ttl:1h}") Duration idleTimeToLive
+    ) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.idleTimeToLive = idleTimeToLive.toMillis();
+    }
+
+    /**
+     * Find the prospects of a salesman near a point.
+     *
+     * @param salesmanId the ID of the salesman
+     * @param point      the point to search from
+     * @param idsToAvoid the IDs of the prospects to skip
+     * @param distance   the max distance from the point
+     * @param limit      the max number of prospects returned
+     * @return the nearby prospects with their distance, the nearest first,
+     * or null if the index is disabled or the prospects of the salesman aren't loaded yet
+     */
+    public GeoResults<MongoClient> findNearby(Integer salesmanId, GeoJsonPoint point, Collection<Integer> idsToAvoid,
+                                              Distance distance, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        evictIdle(now);
+        SalesmanProspects prospects = salesmen.get(salesmanId);
+        if (prospects == null) {
+            load(salesmanId).subscribe(null, e -> log.warn("Prospects of the salesman {} can't be indexed: {}",
+                    salesmanId, e.getMessage()));
+            return null;
+        }
+        prospects.lastAccess = now;
+
+        List<ProspectGrid.Neighbour> neighbours = prospects.findWithin(point.getY(), point.getX(),
+                distance.getNormalizedValue(), Set.copyOf(idsToAvoid), limit);
+        if (neighbours == null) {
+            return null;
+        }
+        Metric metric = distance.getMetric();
+        List<GeoResult<MongoClient>> results = neighbours.stream()
+                .map(neighbour -> {
+                    MongoClient client = new MongoClient(neighbour.id(), neighbour.latitude(), neighbour.longitude());
+                    client.setSalesmanId(salesmanId);
+                    return new GeoResult<>(client, new Distance(neighbour.angle() * metric.getMultiplier(), metric));
+                })
+                .toList();
+        return new GeoResults<>(results, metric);
+    }
+
+    /**
+     * Load the prospects of a salesman from MongoDB, if they aren't already loaded or loading.
+     *
+     * @param salesmanId the ID of the salesman
+     * @return a mono completed once the prospects are loaded
+     */
+    public Mono<Void> load(Integer salesmanId) {
+        SalesmanProspects prospects = new SalesmanProspects();
+        if (salesmen.putIfAbsent(salesmanId, prospects) != null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> {
+                    Query prospectsQuery = query(where("salesmanId").is(salesmanId)
+                            .and("category.name").is(ClientCategory.PROSPECT.getName()));
+                    prospectsQuery.fields().include("id", "location");
+                    prospects.load(mongoTemplate.find(prospectsQuery, MongoClient.class));
+                    log.debug("Indexed {} prospects of the salesman {}", prospects.size(), salesmanId);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                // The next query will try again
+                .doOnError(e -> salesmen.remove(salesmanId, prospects))
+                .then();
+    }
+
+    /**
+     * Evict the prospects of the salesmen who didn't search them for the idle time to live.
+     * <p>
+     * The salesmen are only searched every half time to live, so the prospects stay in the index 1.5 times it at most.
+     *
+     * @param now the current time in milliseconds
+     */
+    private void evictIdle(long now) {
+        long next = nextEviction.get();
+        if (now < next || !nextEviction.compareAndSet(next, now + idleTimeToLive / 2)) {
+            return;
+        }
+        salesmen.values().removeIf(prospects -> prospects.lastAccess + idleTimeToLive <= now);
+    }
+
+    /**
+     * Add the new prospect to the index of its salesman.
+     *
+     * @param event the client created
+     */
+    @EventListener
+    public void onClientCreated(ClientCreatedEvent event) {
+        Client client = event.client();
+        SalesmanProspects prospects = salesmen.get(event.salesman().getId());
+        if (prospects != null && client.getClientCategory() != null
+                && ClientCategory.PROSPECT.getName().equals(client.getClientCategory().getName())) {
+            prospects.add(client.getId(), client.getLatHomeAddress(), client.getLongHomeAddress());
+        }
+    }
+
+    /**
+     * Remove the deleted client from the index of its salesman.
+     *
+     * @param event the client deleted
+     */
+    @EventListener
+    public void onClientDeleted(ClientDeletedEvent event) {
+        SalesmanProspects prospects = salesmen.get(event.salesman().getId());
+        if (prospects != null) {
+            prospects.remove(event.client().getId());
+        }
+    }
+
+    /**
+     * The prospects of a salesman, which receive the created and deleted clients while they are loaded.
+     */
+    private static class SalesmanProspects {
+
+        private final ProspectGrid grid = new ProspectGrid();
+
+        /**
+         * The prospects deleted while loading, that the loaded ones may still contain
+         */
+        private final Set<Integer> removedWhileLoading = new HashSet<>();
+
+        private boolean loaded;
+
+        /**
+         * Last time the salesman searched his prospects, in milliseconds
+         */
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        synchronized void load(List<MongoClient> clients) {
+            for (MongoClient client : clients) {
+                if (!removedWhileLoading.contains(client.getId()) && !grid.contains(client.getId())) {
+                    grid.add(client.getId(), client.getLocation().getY(), client.getLocation().getX());
+                }
+            }
+            removedWhileLoading.clear();
+            loaded = true;
+        }
+
+        synchronized void add(int id, double latitude, double longitude) {
+            grid.add(id, latitude, longitude);
+            removedWhileLoading.remove(id);
+        }
+
+        synchronized void remove(int id) {
+            grid.remove(id);
+            if (!loaded) {
+                removedWhileLoading.add(id);
+            }
+        }
+
+        /**
+         * @return the nearby prospects, or null if they aren't loaded yet
+         */
+        synchronized List<ProspectGrid.Neighbour> findWithin(double latitude, double longitude, double maxAngle,
+                                                             Collection<Integer> excluded, int limit) {
+            return loaded ? grid.findWithin(latitude, longitude, maxAngle, excluded, limit) : null;
+        }
+
+        synchronized int size() {
+            return grid.size();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * SalesmanPosition.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.position;
+
+import fr.iut.pathpilotapi.GeoCord;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+import java.time.Instant;
+
+/**
+ * Position of a salesman during a route, stored in a time-series collection.
+ * <p>
+ * MongoDB groups the positions of a route in buckets by their {@link Meta},
+ * so a trace of several weeks stays compact and is read with a range on the timestamp.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@TimeSeries(collection = SalesmanPositionStore.COLLECTION, timeField = "timestamp", metaField = "meta",
+        granularity = Granularity.SECONDS)
+public class SalesmanPosition {
+
+    @Id
+    private String id;
+
+    /**
+     * When the position was recorded by the device of the salesman
+     */
+    private Instant timestamp;
+
+    private Meta meta;
+
+    private GeoJsonPoint position;
+
+    /**
+     * Create a position of a salesman in a route.
+     *
+     * @param routeId    the route ID
+     * @param salesmanId the salesman ID
+     * @param position   the position of the salesman
+     * @param timestamp  when the position was recorded
+     * @return the position
+     */
+    public static SalesmanPosition of(String routeId, Integer salesmanId, GeoCord position, Instant timestamp) {
+        SalesmanPosition salesmanPosition = new SalesmanPosition();
+        salesmanPosition.setMeta(new Meta(routeId, salesmanId));
+        salesmanPosition.setPosition(new GeoJsonPoint(position.longitude(), position.latitude()));
+        salesmanPosition.setTimestamp(timestamp);
+        return salesmanPosition;
+    }
+
+    /**
+     * @return the position as coordinates
+     */
+    public GeoCord toGeoCord() {
+        return new GeoCord(position.getY(), position.getX());
+    }
+
+    /**
+     * Metadata of the positions, the same for all the positions of a route.
+     *
+     * @param routeId    the route ID
+     * @param salesmanId the salesman ID
+     */
+    public record Meta(String routeId, Integer salesmanId) {
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * SalesmanPositionStore.java                                 19 oct. 2026
+ * IUT de Rodez, no author rights
+ */
+
+package fr.iut.pathpilotapi.routes.position;
+
+import com.mongodb.MongoNamespace;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Store of the positions of the salesmen during their routes.
+ * <p>
+ * The positions are in the {@value #COLLECTION} time-series collection, not in the route document,
+ * so the route stays small whatever the length of the trace.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SalesmanPositionStore implements SmartInitializingSingleton {
+
+    public static final String COLLECTION = "salesman_positions";
+
+    /**
+     * Type of a time-series collection, in the description of the collections
+     */
+    private static final String TIME_SERIES = "timeseries";
+
+    /**
+     * Number of positions inserted at once when a regular collection is converted
+     */
+    private static final int CONVERSION_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+
+    /**
+     * Create the collection before the web server starts, so no request inserts a position before it exists.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        ensureCollection();
+    }
+
+    /**
+     * Create the time-series collection if it doesn't exist yet.
+     * <p>
+     * MongoDB would create a regular collection on the first insert, so it's created at startup.
+     * A regular collection created that way is converted, see {@link #convertToTimeSeries(Document)}.
+     */
+    public void ensureCollection() {
+        Document collection = mongoTemplate.getDb().listCollections()
+                .filter(new Document("name", COLLECTION))
+                .first();
+        if (collection == null) {
+            createCollection();
+        } else if (!TIME_SERIES.equals(collection.getString("type"))) {
+            convertToTimeSeries(collection);
+        }
+    }
+
+    private void createCollection() {
+        try {
+            mongoTemplate.createCollection(SalesmanPosition.class);
+        } catch (DataAccessException e) {
+            // Another instance of the API created it at the same time
+            log.debug("The collection {} already exists", COLLECTION, e);
+        }
+    }
+
+    /**
+     * Replace a regular collection by the time-series collection, with the same positions.
+     * <p>
+     * A collection can't become a time-series one in place, so the regular one is renamed,
+     * its positions are copied in batches to the new collection, then it's dropped.
+     */
+    private void convertToTimeSeries(Document collection) {
+        log.warn("The collection {} is a {} collection, converting it to a time-series one",
+                COLLECTION, collection.getString("type"));
+        String regular = COLLECTION + "_regular";
+        mongoTemplate.getCollection(COLLECTION)
+                .renameCollection(new MongoNamespace(mongoTemplate.getDb().getName(), regular));
+        createCollection();
+
+        long copied = 0;
+        List<SalesmanPosition> batch = new ArrayList<>(CONVERSION_BATCH_SIZE);
+        try (Stream<SalesmanPosition> positions = mongoTemplate.stream(new Query(), SalesmanPosition.class, regular)) {
+            for (SalesmanPosition position : (Iterable<SalesmanPosition>) positions::iterator) {
+                batch.add(position);
+                if (batch.size() == CONVERSION_BATCH_SIZE) {
+                    insertAll(batch);
+                    copied += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            insertAll(batch);
+            copied += batch.size();
+        }
+        mongoTemplate.dropCollection(regular);
+        log.info("Copied {} positions to the time-series collection {}", copied, COLLECTION);
+    }
+
+    /**
+     * Store positions of salesmen.
+     *
+     * @param positions the positions to store
+     */
+    public void insertAll(List<SalesmanPosition> positions) {
+        mongoTemplate.insert(positions, SalesmanPosition.class);
+    }
+
+    /**
+     * Find the positions of a route recorded in a time range, sorted by timestamp.
+     *
+     * @param routeId the route ID
+     * @param from    the start of the range, inclusive, or null to start with the first position
+     * @param to      the end of the range, exclusive, or null to end with the last position
+     * @param limit   the max number of positions
+     * @return the positions
+     */
+    public List<SalesmanPosition> findTrace(String routeId, Instant from, Instant to, int limit) {
+        Criteria criteria = where("meta.routeId").is(routeId);
+        if (from != null || to != null) {
+            Criteria timestamp = criteria.and("timestamp");
+            if (from != null) {
+                timestamp.gte(from);
+            }
+            if (to != null) {
+                timestamp.lt(to);
+            }
+        }
+        return mongoTemplate.find(query(criteria).with(Sort.by("timestamp")).limit(limit), SalesmanPosition.class);
+    }
+
+    /**
+     * Delete all the positions of a route.
+     *
+     * @param routeId the route ID
+     */
+    public void deleteAllByRouteId(String routeId) {
+        mongoTemplate.remove(query(where("meta.routeId").is(routeId)), SalesmanPosition.class);
+    }
+}
@@ -0,0 +1,61 @@
+package fr.iut.pathpilotapi;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the least recently used cache.
+ */
+class LruCacheTest {
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        // Given a full cache
+        LruCache<Integer, String> cache = new LruCache<>(2);
+        cache.put(1, "one");
+        cache.put(2, "two");
+
+        // When the first entry is read, then a third one is added
+        cache.get(1);
+        cache.put(3, "three");
+
+        // Then the second entry is evicted
+        assertEquals(2, cache.size());
+        assertEquals("one", cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals("three", cache.get(3));
+    }
+
+    @Test
+    void testEntryWithoutTimeToLiveNeverExpires() {
+        LruCache<Integer, String> cache = new LruCache<>(10);
+
+        cache.put(1, "one");
+
+        assertEquals("one", cache.get(1));
+    }
+
+    @Test
+    void testExpiredEntryIsEvicted() {
+        LruCache<Integer, String> cache = new LruCache<>(10, Duration.ZERO);
+
+        cache.put(1, "one");
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testRemove() {
+        LruCache<Integer, String> cache = new LruCache<>(10);
+        cache.put(1, "one");
+
+        cache.remove(1);
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+    }
+}
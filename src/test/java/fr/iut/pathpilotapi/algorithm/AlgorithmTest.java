@@ -3,10 +3,12 @@ package fr.iut.pathpilotapi.algorithm;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 /**
  * Class to test the algorithms to find the best path to optimize the itinerary.
@@ -31,6 +33,26 @@ public class AlgorithmTest {
         assertEquals(testMatrix.expectedList, result, String.format("Error with the algorithm %s. The result is not the expected one.", algoType.getName()));
     }
 
+    @Test
+    void testBestDistanceListener() {
+        for (AlgorithmType algoType : AlgorithmType.values()) {
+            Algorithm algorithm = algoType.newInstanceAlgorithm();
+            List<Double> bestDistances = new ArrayList<>();
+            algorithm.setMatrixLocationsRequest(Arrays.asList(
+                    Arrays.asList(0.0, 2.0, 1.0),
+                    Arrays.asList(1.0, 0.0, 1.0),
+                    Arrays.asList(1.0, 1.0, 0.0)
+            ));
+            algorithm.setBestDistanceListener(bestDistances::add);
+
+            algorithm.computeBestPath();
+
+            // The listener is notified with better and better distances, the last one is the best
+            assertFalse(bestDistances.isEmpty(), algoType.getName());
+            assertEquals(3.0, bestDistances.getLast(), 0.01, algoType.getName());
+        }
+    }
+
     @Test
     void testFindBestPath2X2() {
         TestMatrix testMatrix = new TestMatrix(
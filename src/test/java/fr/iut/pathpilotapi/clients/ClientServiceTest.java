@@ -6,13 +6,17 @@
 package fr.iut.pathpilotapi.clients;
 
 import fr.iut.pathpilotapi.clients.dto.ClientRequestModel;
+import fr.iut.pathpilotapi.clients.dto.ClientView;
 import fr.iut.pathpilotapi.clients.entity.Client;
 import fr.iut.pathpilotapi.clients.entity.ClientCategory;
 import fr.iut.pathpilotapi.clients.entity.MongoClient;
+import fr.iut.pathpilotapi.clients.event.ClientCreatedEvent;
+import fr.iut.pathpilotapi.clients.event.ClientDeletedEvent;
 import fr.iut.pathpilotapi.clients.repository.ClientRepository;
 import fr.iut.pathpilotapi.clients.repository.MongoClientRepository;
 import fr.iut.pathpilotapi.clients.service.ClientCategoryService;
 import fr.iut.pathpilotapi.clients.service.ClientService;
+import fr.iut.pathpilotapi.clients.service.ClientViewCache;
 import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
 import fr.iut.pathpilotapi.itineraries.ItineraryRepository;
 import fr.iut.pathpilotapi.routes.RouteRepository;
@@ -23,6 +27,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -54,6 +60,12 @@ class ClientServiceTest {
     @Mock
     private ItineraryRepository itineraryRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private ClientViewCache clientViewCache = new ClientViewCache(100);
+
 
     @BeforeEach
     void setUp() {
@@ -94,6 +106,7 @@ class ClientServiceTest {
         assertNotNull(result);
         verify(clientCategoryService, times(1)).findByName(clientRM.getClientCategory());
         verify(clientRepository, times(1)).save(any(Client.class));
+        verify(eventPublisher, times(1)).publishEvent(any(ClientCreatedEvent.class));
     }
 
     @Test
@@ -127,6 +140,7 @@ class ClientServiceTest {
 
         verify(clientRepository, times(1)).findById(client.getId());
         verify(clientRepository, times(1)).delete(client);
+        verify(eventPublisher, times(1)).publishEvent(new ClientDeletedEvent(client, salesman));
     }
 
     @Test
@@ -319,4 +333,56 @@ class ClientServiceTest {
         verify(mongoClientRepository).deleteById(client1.getId());
         verify(itineraryRepository).deleteAllByClientIdAndConnectedSalesman(salesman.getId(), client1.getId());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindAllViewsByIdAndConnectedSalesman() {
+        // Given a salesman and two of his clients
+        Salesman salesman = new Salesman();
+        salesman.setId(1);
+        ClientView client1 = new ClientView(1, 1, "IKEA", 44.0, 2.0, ClientCategory.PROSPECT, null, null, null, null);
+        ClientView client2 = new ClientView(2, 1, "Decathlon", 44.1, 2.1, ClientCategory.PROSPECT, null, null, null, null);
+        when(clientRepository.findAllViewsByIdInAndSalesmanId(List.of(2, 1), 1)).thenReturn(List.of(client1, client2));
+
+        // When getting the clients
+        List<ClientView> clients = clientService.findAllViewsByIdAndConnectedSalesman(List.of(2, 1), salesman);
+
+        // Then they are read in a single query, in the order of the ids
+        assertEquals(List.of(client2, client1), clients);
+        verify(clientRepository, times(1)).findAllViewsByIdInAndSalesmanId(anyCollection(), anyInt());
+        verify(clientRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    void testFindAllViewsByIdAndConnectedSalesmanUsesCache() {
+        // Given a client already in the cache
+        Salesman salesman = new Salesman();
+        salesman.setId(1);
+        ClientView client1 = new ClientView(1, 1, "IKEA", 44.0, 2.0, ClientCategory.PROSPECT, null, null, null, null);
+        ClientView client2 = new ClientView(2, 1, "Decathlon", 44.1, 2.1, ClientCategory.PROSPECT, null, null, null, null);
+        clientViewCache.put(client1);
+        when(clientRepository.findAllViewsByIdInAndSalesmanId(List.of(2), 1)).thenReturn(List.of(client2));
+
+        // When getting the clients
+        List<ClientView> clients = clientService.findAllViewsByIdAndConnectedSalesman(List.of(1, 2), salesman);
+
+        // Then only the missing client is read, and it's cached for the next time
+        assertEquals(List.of(client1, client2), clients);
+        verify(clientRepository, times(1)).findAllViewsByIdInAndSalesmanId(List.of(2), 1);
+        assertEquals(client2, clientViewCache.get(2));
+    }
+
+    @Test
+    void testFindAllViewsByIdAndConnectedSalesmanSkipsOtherSalesmen() {
+        // Given a cached client of another salesman, and a client not found
+        Salesman salesman = new Salesman();
+        salesman.setId(1);
+        clientViewCache.put(new ClientView(1, 2, "IKEA", 44.0, 2.0, ClientCategory.PROSPECT, null, null, null, null));
+        when(clientRepository.findAllViewsByIdInAndSalesmanId(List.of(3), 1)).thenReturn(List.of());
+
+        // When getting the clients
+        List<ClientView> clients = clientService.findAllViewsByIdAndConnectedSalesman(List.of(1, 3), salesman);
+
+        // Then none of them is returned
+        assertTrue(clients.isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+package fr.iut.pathpilotapi.clients;
+
+import fr.iut.pathpilotapi.clients.dto.ClientView;
+import fr.iut.pathpilotapi.clients.entity.Client;
+import fr.iut.pathpilotapi.clients.entity.ClientCategory;
+import fr.iut.pathpilotapi.clients.event.ClientDeletedEvent;
+import fr.iut.pathpilotapi.clients.service.ClientViewCache;
+import fr.iut.pathpilotapi.salesman.Salesman;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the cache of the client projections.
+ */
+class ClientViewCacheTest {
+
+    private static ClientView createView(Integer id) {
+        return new ClientView(id, 1, "IKEA", 44.35, 2.57, ClientCategory.PROSPECT, null, null, null, null);
+    }
+
+    @Test
+    void testPutAndGet() {
+        ClientViewCache cache = new ClientViewCache(10);
+
+        cache.put(createView(1));
+
+        assertEquals(createView(1), cache.get(1));
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    void testLeastRecentlyUsedClientIsEvicted() {
+        ClientViewCache cache = new ClientViewCache(2);
+        cache.put(createView(1));
+        cache.put(createView(2));
+
+        // The client 1 is used, so the client 2 is the least recently used one
+        cache.get(1);
+        cache.put(createView(3));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+    }
+
+    @Test
+    void testDeletedClientIsRemoved() {
+        ClientViewCache cache = new ClientViewCache(10);
+        cache.put(createView(1));
+        Client client = new Client();
+        client.setId(1);
+
+        cache.onClientDeleted(new ClientDeletedEvent(client, new Salesman()));
+
+        assertNull(cache.get(1));
+        assertEquals(0, cache.size());
+    }
+}
@@ -11,20 +11,17 @@ import fr.iut.pathpilotapi.salesman.SalesmanRepository;
 import fr.iut.pathpilotapi.test.IntegrationTestUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.event.annotation.BeforeTestExecution;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
-import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
-import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -47,8 +44,6 @@ class ItineraryControllerIntegrationTest {
     private ClientRepository clientRepository;
     @Autowired
     private ItineraryRepository itineraryRepository;
-    @Mock
-    private ItineraryService itineraryService;
 
     @BeforeTestExecution
     void saveSalesman() {
@@ -82,12 +77,6 @@ class ItineraryControllerIntegrationTest {
 
         System.out.println(IntegrationTestUtils.asJsonString(itineraryRequest));
 
-        when(itineraryService.getDistances(anyList(), anyString(), any(Salesman.class))).thenReturn(Mono.just(List.of(
-                List.of(0.0, 1.0, 2.0),
-                List.of(1.0, 0.0, 3.0),
-                List.of(2.0, 3.0, 0.0)
-        )));
-
         // When we're adding a new itinerary
         mockMvc.perform(post(API_ITINERARY_URL)
                         .content(IntegrationTestUtils.asJsonString(itineraryRequest))
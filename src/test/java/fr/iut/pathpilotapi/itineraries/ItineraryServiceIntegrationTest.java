@@ -14,7 +14,6 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -78,7 +77,7 @@ class ItineraryServiceIntegrationTest {
         ItineraryRequestModel itineraryRequest = new ItineraryRequestModel();
         itineraryRequest.setClients_schedule(List.of(client.getId()));
 
-        Itinerary createdItinerary = itineraryService.createItinerary(itineraryRequest, salesman, Collections.emptyList());
+        Itinerary createdItinerary = itineraryService.planItinerary(itineraryRequest, salesman, true);
 
         assertNotNull(createdItinerary, "The itinerary should be created");
         assertEquals(1, createdItinerary.getClients_schedule().size(), "The itinerary should have one client");
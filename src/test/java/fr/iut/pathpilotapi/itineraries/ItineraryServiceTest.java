@@ -2,8 +2,12 @@ package fr.iut.pathpilotapi.itineraries;
 
 import fr.iut.pathpilotapi.clients.entity.Client;
 import fr.iut.pathpilotapi.clients.service.ClientService;
+import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
 import fr.iut.pathpilotapi.itineraries.dto.ClientDTO;
 import fr.iut.pathpilotapi.itineraries.dto.ItineraryRequestModel;
+import fr.iut.pathpilotapi.itineraries.matrix.DistanceMatrix;
+import fr.iut.pathpilotapi.itineraries.matrix.DistanceMatrixService;
+import fr.iut.pathpilotapi.itineraries.matrix.Objective;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import fr.iut.pathpilotapi.salesman.SalesmanRepository;
 import fr.iut.pathpilotapi.test.IntegrationTestUtils;
@@ -16,10 +20,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -37,6 +45,9 @@ class ItineraryServiceTest {
     @Mock
     private WebClient oRSWebCLient;
 
+    @Mock
+    private DistanceMatrixService distanceMatrixService;
+
     @InjectMocks
     private ItineraryService itineraryService;
 
@@ -79,7 +90,7 @@ class ItineraryServiceTest {
     }
 
     @Test
-    void testCreateItinerary() {
+    void testPlanEstimatedItinerary() {
         Salesman salesman = IntegrationTestUtils.createSalesman();
 
         Client client = IntegrationTestUtils.createClient();
@@ -90,21 +101,131 @@ class ItineraryServiceTest {
         List<ClientDTO> clientsSchedule = List.of(clientDTO);
 
         ItineraryRequestModel itineraryRequestModel = IntegrationTestUtils.createItineraryRequestModel(clientsSchedule);
-        Itinerary itinerary = new Itinerary();
-        itinerary.setSalesmanId(salesman.getId());
 
-        when(clientService.findByIdAndConnectedSalesman(client.getId(), salesman)).thenReturn(client);
-        when(itineraryRepository.save(any(Itinerary.class))).thenReturn(itinerary);
+        when(clientService.getAllClients(List.of(1), salesman)).thenReturn(List.of(client));
+        when(distanceMatrixService.estimateMatrix(anyList())).thenReturn(new DistanceMatrix(2, new double[]{0, 1, 1, 0}, new double[4]));
+        when(itineraryRepository.save(any(Itinerary.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ItineraryService service = new ItineraryService(itineraryRepository, clientService, distanceMatrixService, Schedulers.immediate());
 
-        Itinerary result = itineraryService.createItinerary(itineraryRequestModel, salesman, Collections.emptyList());
+        Itinerary result = service.planItinerary(itineraryRequestModel, salesman, true);
 
         assertNotNull(result);
         assertEquals(salesman.getId(), result.getSalesmanId());
         verify(itineraryRepository, times(1)).save(any(Itinerary.class));
+        // The estimated distances don't call OpenRouteService
+        verify(distanceMatrixService, never()).getMatrix(anyList(), anyString());
+    }
+
+    @Test
+    void testPlanItinerary() {
+        // Given two clients, the best path is to visit the second one first
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        Client client1 = IntegrationTestUtils.createClient();
+        client1.setId(1);
+        Client client2 = IntegrationTestUtils.createClient();
+        client2.setId(2);
+        ItineraryRequestModel itineraryRequestModel = new ItineraryRequestModel();
+        itineraryRequestModel.setClients_schedule(List.of(1, 2));
+
+        when(clientService.getAllClients(List.of(1, 2), salesman)).thenReturn(List.of(client1, client2));
+        when(distanceMatrixService.getMatrix(anyList(), eq(ItineraryService.PROFILE))).thenReturn(Mono.just(
+                new DistanceMatrix(3, new double[]{
+                        0, 10, 1,
+                        1, 0, 10,
+                        10, 1, 0
+                }, new double[]{
+                        0, 1, 10,
+                        10, 0, 1,
+                        1, 10, 0
+                })));
+        when(itineraryRepository.save(any(Itinerary.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ItineraryService service = new ItineraryService(itineraryRepository, clientService, distanceMatrixService, Schedulers.immediate());
+
+        // When we plan the itinerary
+        Itinerary result = service.planItinerary(itineraryRequestModel, salesman, false);
+
+        // Then the clients are in the order of the best path, and they are fetched in a single query
+        assertEquals(List.of(2, 1), result.getClients_schedule().stream().map(ClientDTO::getId).toList());
+        verify(clientService, never()).findByIdAndConnectedSalesman(anyInt(), any(Salesman.class));
+        verify(itineraryRepository, times(1)).save(any(Itinerary.class));
+    }
+
+    @Test
+    void testPlanItineraryForDuration() {
+        // Given two clients, the fastest path is to visit the first one first, the shortest path is the other way
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        Client client1 = IntegrationTestUtils.createClient();
+        client1.setId(1);
+        Client client2 = IntegrationTestUtils.createClient();
+        client2.setId(2);
+        ItineraryRequestModel itineraryRequestModel = new ItineraryRequestModel();
+        itineraryRequestModel.setClients_schedule(List.of(1, 2));
+        itineraryRequestModel.setObjective(Objective.DURATION);
+
+        when(clientService.getAllClients(List.of(1, 2), salesman)).thenReturn(List.of(client1, client2));
+        when(distanceMatrixService.getMatrix(anyList(), eq(ItineraryService.PROFILE))).thenReturn(Mono.just(
+                new DistanceMatrix(3, new double[]{
+                        0, 10, 1,
+                        1, 0, 10,
+                        10, 1, 0
+                }, new double[]{
+                        0, 1, 10,
+                        10, 0, 1,
+                        1, 10, 0
+                })));
+        when(itineraryRepository.save(any(Itinerary.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ItineraryService service = new ItineraryService(itineraryRepository, clientService, distanceMatrixService, Schedulers.immediate());
+
+        // When we plan the itinerary to minimise the driving time
+        Itinerary result = service.planItinerary(itineraryRequestModel, salesman, false);
+
+        // Then the clients are in the order of the fastest path, with a single matrix request
+        assertEquals(List.of(1, 2), result.getClients_schedule().stream().map(ClientDTO::getId).toList());
+        verify(distanceMatrixService, times(1)).getMatrix(anyList(), eq(ItineraryService.PROFILE));
+    }
+
+    @Test
+    void testPlanItineraries() {
+        // Given a valid itinerary, and an itinerary with a client that doesn't exist
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        Client client1 = IntegrationTestUtils.createClient();
+        client1.setId(1);
+        Client client2 = IntegrationTestUtils.createClient();
+        client2.setId(2);
+        ItineraryRequestModel validItinerary = new ItineraryRequestModel();
+        validItinerary.setClients_schedule(List.of(1, 2));
+        ItineraryRequestModel invalidItinerary = new ItineraryRequestModel();
+        invalidItinerary.setClients_schedule(List.of(3));
+
+        Map<Integer, Client> clientsById = Map.of(1, client1, 2, client2);
+        when(clientService.findAllById(Set.of(1, 2, 3))).thenReturn(clientsById);
+        when(clientService.getAllClients(List.of(1, 2), salesman, clientsById)).thenReturn(List.of(client1, client2));
+        when(clientService.getAllClients(List.of(3), salesman, clientsById))
+                .thenThrow(new ObjectNotFoundException("Client not found with ID: 3"));
+        when(distanceMatrixService.getMatrices(anyList(), eq(ItineraryService.PROFILE))).thenReturn(Mono.just(List.of(
+                new DistanceMatrix(3, new double[]{
+                        0, 10, 1,
+                        1, 0, 10,
+                        10, 1, 0
+                }, new double[9]))));
+        when(itineraryRepository.insert(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        ItineraryService service = new ItineraryService(itineraryRepository, clientService, distanceMatrixService, Schedulers.immediate());
+
+        // When we plan both itineraries
+        List<ItineraryBatchResult> results = service.planItineraries(List.of(invalidItinerary, validItinerary), salesman, false);
+
+        // Then the invalid one fails, the valid one is ordered and inserted in bulk
+        assertEquals(2, results.size());
+        assertFalse(results.get(0).isCreated());
+        assertEquals("Client not found with ID: 3", results.get(0).error());
+        assertTrue(results.get(1).isCreated());
+        assertEquals(List.of(2, 1), results.get(1).itinerary().getClients_schedule().stream().map(ClientDTO::getId).toList());
+        verify(itineraryRepository, times(1)).insert(anyList());
+        verify(itineraryRepository, never()).save(any(Itinerary.class));
     }
 
     @Test
-    void testCreateItineraryWithClientsNotBelongToSalesman() {
+    void testPlanItineraryWithClientsNotBelongToSalesman() {
         // Given two Salesmen
         Salesman salesman = IntegrationTestUtils.createSalesman();
         Salesman anotherSalesman = IntegrationTestUtils.createSalesman();
@@ -119,9 +240,9 @@ class ItineraryServiceTest {
 
         ItineraryRequestModel itineraryRequestModel = IntegrationTestUtils.createItineraryRequestModel(clientsSchedule);
 
-        when(clientService.findByIdAndConnectedSalesman(client.getId(), salesman)).thenThrow(new IllegalArgumentException(ItineraryService.ITINERARY_NOT_BELONGS_TO_SALESMAN));
+        when(clientService.getAllClients(List.of(client.getId()), salesman)).thenThrow(new IllegalArgumentException(ItineraryService.ITINERARY_NOT_BELONGS_TO_SALESMAN));
 
-        Exception exception = assertThrows(IllegalArgumentException.class, () -> itineraryService.createItinerary(itineraryRequestModel, salesman, Collections.emptyList()));
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> itineraryService.planItinerary(itineraryRequestModel, salesman, false));
 
         assertEquals(ItineraryService.ITINERARY_NOT_BELONGS_TO_SALESMAN, exception.getMessage());
         verify(itineraryRepository, never()).save(any(Itinerary.class));
@@ -0,0 +1,182 @@
+package fr.iut.pathpilotapi.itineraries.jobs;
+
+import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
+import fr.iut.pathpilotapi.exceptions.SalesmanBelongingException;
+import fr.iut.pathpilotapi.itineraries.Itinerary;
+import fr.iut.pathpilotapi.itineraries.ItineraryService;
+import fr.iut.pathpilotapi.itineraries.dto.ItineraryRequestModel;
+import fr.iut.pathpilotapi.salesman.Salesman;
+import fr.iut.pathpilotapi.test.IntegrationTestUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Class to test the itineraries planned in the background.
+ */
+class PlanningJobServiceTest {
+
+    @Mock
+    private ItineraryService itineraryService;
+
+    private PlanningJobService planningJobService;
+
+    private Salesman salesman;
+
+    private ItineraryRequestModel request;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        planningJobService = new PlanningJobService(itineraryService, 1, 1, Duration.ofHours(1));
+        salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        request = new ItineraryRequestModel();
+        request.setClients_schedule(List.of(1, 2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        planningJobService.shutdown();
+    }
+
+    @Test
+    void testJobDone() throws InterruptedException {
+        // Given the itinerary is planned with a path of 42 meters
+        Itinerary itinerary = new Itinerary();
+        itinerary.setId("itinerary");
+        when(itineraryService.planItinerary(eq(request), eq(salesman), eq(false), any(DoubleConsumer.class)))
+                .thenAnswer(invocation -> {
+                    invocation.<DoubleConsumer>getArgument(3).accept(42.0);
+                    return itinerary;
+                });
+
+        // When we submit the job
+        PlanningJob job = planningJobService.submit(request, salesman, false);
+        waitForTheEnd(job);
+
+        // Then the job is done with the created itinerary
+        assertEquals(JobStatus.DONE, job.getStatus());
+        assertEquals("itinerary", job.getItineraryId());
+        assertEquals(42.0, job.getBestDistance());
+        assertSame(job, planningJobService.findByIdAndConnectedSalesman(job.getId(), salesman));
+    }
+
+    @Test
+    void testJobFailed() throws InterruptedException {
+        when(itineraryService.planItinerary(eq(request), eq(salesman), eq(false), any(DoubleConsumer.class)))
+                .thenThrow(new ObjectNotFoundException("Client not found with ID: 2"));
+
+        PlanningJob job = planningJobService.submit(request, salesman, false);
+        waitForTheEnd(job);
+
+        assertEquals(JobStatus.FAILED, job.getStatus());
+        assertEquals("Client not found with ID: 2", job.getError());
+        assertNull(job.getItineraryId());
+    }
+
+    @Test
+    void testSolverDoesNotWaitForTheStreams() throws InterruptedException {
+        // Given a job whose solver finds a better path while the events are being sent
+        CountDownLatch planning = new CountDownLatch(1);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch recorded = new CountDownLatch(1);
+        when(itineraryService.planItinerary(eq(request), eq(salesman), eq(false), any(DoubleConsumer.class)))
+                .thenAnswer(invocation -> {
+                    planning.countDown();
+                    sending.await();
+                    invocation.<DoubleConsumer>getArgument(3).accept(42.0);
+                    recorded.countDown();
+                    return new Itinerary();
+                });
+        PlanningJob job = planningJobService.submit(request, salesman, false);
+        assertTrue(planning.await(5, TimeUnit.SECONDS));
+
+        job.getEventsLock().lock();
+        try {
+            sending.countDown();
+
+            // Then the solver records the distance without waiting for the events
+            assertTrue(recorded.await(5, TimeUnit.SECONDS));
+            assertEquals(42.0, job.getBestDistance());
+        } finally {
+            job.getEventsLock().unlock();
+        }
+        waitForTheEnd(job);
+        assertEquals(JobStatus.DONE, job.getStatus());
+    }
+
+    @Test
+    void testFollowFinishedJob() throws InterruptedException {
+        // Given a finished job
+        when(itineraryService.planItinerary(eq(request), eq(salesman), eq(false), any(DoubleConsumer.class)))
+                .thenReturn(new Itinerary());
+        PlanningJob job = planningJobService.submit(request, salesman, false);
+        waitForTheEnd(job);
+
+        // When a stream follows it
+        planningJobService.subscribe(job.getId(), salesman);
+
+        // Then the stream only gets the last event from the subscription, the worker won't send it again
+        assertTrue(job.getEmitters().isEmpty());
+    }
+
+    @Test
+    void testJobOfAnotherSalesman() {
+        when(itineraryService.planItinerary(eq(request), eq(salesman), eq(false), any(DoubleConsumer.class)))
+                .thenReturn(new Itinerary());
+        PlanningJob job = planningJobService.submit(request, salesman, false);
+        Salesman anotherSalesman = IntegrationTestUtils.createSalesman();
+        anotherSalesman.setId(2);
+
+        assertThrows(SalesmanBelongingException.class,
+                () -> planningJobService.findByIdAndConnectedSalesman(job.getId(), anotherSalesman));
+    }
+
+    @Test
+    void testJobNotFound() {
+        assertThrows(ObjectNotFoundException.class,
+                () -> planningJobService.findByIdAndConnectedSalesman("unknown", salesman));
+    }
+
+    @Test
+    void testTooManyJobs() throws InterruptedException {
+        // Given the only worker is busy and the queue is full
+        CountDownLatch release = new CountDownLatch(1);
+        when(itineraryService.planItinerary(eq(request), eq(salesman), eq(false), any(DoubleConsumer.class)))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return new Itinerary();
+                });
+        PlanningJob running = planningJobService.submit(request, salesman, false);
+        while (running.getStatus() == JobStatus.PENDING) {
+            Thread.sleep(10);
+        }
+        planningJobService.submit(request, salesman, false);
+
+        // Then a new job is rejected
+        assertThrows(RejectedExecutionException.class, () -> planningJobService.submit(request, salesman, false));
+        release.countDown();
+    }
+
+    private static void waitForTheEnd(PlanningJob job) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5_000;
+        while (!job.getStatus().isFinished() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class to test the building of the distance matrix.
+ */
+class DistanceMatrixServiceTest {
+
+    private static final String PROFILE = "driving-car";
+    private static final GeoCord HOME = new GeoCord(44.3506, 2.5750);
+    private static final GeoCord CLIENT_1 = new GeoCord(44.3585, 2.5672);
+    private static final GeoCord CLIENT_2 = new GeoCord(44.3489, 2.5779);
+
+    @Mock
+    private ORSMatrixClient orsMatrixClient;
+
+    @Mock
+    private LegStore legStore;
+
+    private LegCache legCache;
+
+    private DistanceMatrixService distanceMatrixService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        legCache = new LegCache(100, Duration.ofDays(1));
+        distanceMatrixService = new DistanceMatrixService(orsMatrixClient, legCache, legStore, new GreatCircleMatrixEngine(1.3, 50));
+    }
+
+    @Test
+    void testAllLegsFetched() {
+        List<GeoCord> locations = List.of(HOME, CLIENT_1);
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_1), List.of(HOME, CLIENT_1)))
+                .thenReturn(Mono.just(new MatrixBlock(2, 2, new double[]{0, 10, 20, 0}, new double[]{0, 60, 120, 0})));
+
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(locations, PROFILE).block();
+
+        assertNotNull(matrix);
+        assertEquals(10, matrix.distance(0, 1));
+        assertEquals(20, matrix.distance(1, 0));
+        assertEquals(60, matrix.duration(0, 1));
+        assertEquals(120, matrix.duration(1, 0));
+        // The legs are now in the cache
+        assertEquals(new Leg(10, 60), legCache.get(LegKey.of(PROFILE, HOME, CLIENT_1)));
+        assertEquals(new Leg(20, 120), legCache.get(LegKey.of(PROFILE, CLIENT_1, HOME)));
+        // And in the store
+        verify(legStore).saveAll(Map.of(
+                LegKey.of(PROFILE, HOME, CLIENT_1), new Leg(10, 60),
+                LegKey.of(PROFILE, CLIENT_1, HOME), new Leg(20, 120)));
+    }
+
+    @Test
+    void testStoredLegsAreUsed() {
+        // Given the legs are in the store but not in the cache, e.g. after a restart
+        when(legStore.findAll(PROFILE, List.of(HOME, CLIENT_1))).thenReturn(Map.of(
+                LegKey.of(PROFILE, HOME, CLIENT_1), new Leg(10, 60),
+                LegKey.of(PROFILE, CLIENT_1, HOME), new Leg(20, 120)));
+
+        // When we get the matrix
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(List.of(HOME, CLIENT_1), PROFILE).block();
+
+        // Then ORS isn't called and the legs are put in the cache
+        assertNotNull(matrix);
+        assertEquals(10, matrix.distance(0, 1));
+        assertEquals(20, matrix.distance(1, 0));
+        verifyNoInteractions(orsMatrixClient);
+        assertEquals(new Leg(10, 60), legCache.get(LegKey.of(PROFILE, HOME, CLIENT_1)));
+    }
+
+    @Test
+    void testORSIsUsedWhenTheStoreFails() {
+        when(legStore.findAll(eq(PROFILE), anyList())).thenThrow(new IllegalStateException("Mongo is down"));
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_1), List.of(HOME, CLIENT_1)))
+                .thenReturn(Mono.just(new MatrixBlock(2, 2, new double[]{0, 10, 20, 0}, new double[]{0, 60, 120, 0})));
+
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(List.of(HOME, CLIENT_1), PROFILE).block();
+
+        assertNotNull(matrix);
+        assertEquals(10, matrix.distance(0, 1));
+    }
+
+    @Test
+    void testNoRequestWhenAllLegsAreCached() {
+        legCache.put(LegKey.of(PROFILE, HOME, CLIENT_1), new Leg(10, 60));
+        legCache.put(LegKey.of(PROFILE, CLIENT_1, HOME), new Leg(20, 120));
+
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(List.of(HOME, CLIENT_1), PROFILE).block();
+
+        assertNotNull(matrix);
+        assertEquals(10, matrix.distance(0, 1));
+        assertEquals(20, matrix.distance(1, 0));
+        verifyNoInteractions(orsMatrixClient, legStore);
+    }
+
+    @Test
+    void testOnlyMissingLegsAreFetched() {
+        // Given the legs between the home and the first client are cached
+        legCache.put(LegKey.of(PROFILE, HOME, CLIENT_1), new Leg(10, 60));
+        legCache.put(LegKey.of(PROFILE, CLIENT_1, HOME), new Leg(20, 120));
+        // Then only the row and the column of the second client are fetched
+        when(orsMatrixClient.fetch(PROFILE, List.of(CLIENT_2), List.of(HOME, CLIENT_1)))
+                .thenReturn(Mono.just(new MatrixBlock(1, 2, new double[]{30, 40}, new double[]{180, 240})));
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_1), List.of(CLIENT_2)))
+                .thenReturn(Mono.just(new MatrixBlock(2, 1, new double[]{50, 60}, new double[]{300, 360})));
+
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(List.of(HOME, CLIENT_1, CLIENT_2), PROFILE).block();
+
+        assertNotNull(matrix);
+        assertEquals(List.of(
+                List.of(0.0, 10.0, 50.0),
+                List.of(20.0, 0.0, 60.0),
+                List.of(30.0, 40.0, 0.0)
+        ), matrix.toLists());
+        assertEquals(List.of(
+                List.of(0.0, 60.0, 300.0),
+                List.of(120.0, 0.0, 360.0),
+                List.of(180.0, 240.0, 0.0)
+        ), matrix.costs(Objective.DURATION, 0));
+        verify(orsMatrixClient, times(2)).fetch(eq(PROFILE), anyList(), anyList());
+    }
+
+    @Test
+    void testEstimatedWhenORSFails() {
+        List<GeoCord> locations = List.of(HOME, CLIENT_1);
+        when(orsMatrixClient.fetch(eq(PROFILE), anyList(), anyList()))
+                .thenReturn(Mono.error(new IllegalStateException("ORS is down")));
+
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(locations, PROFILE).block();
+
+        assertNotNull(matrix);
+        assertEquals(distanceMatrixService.estimateMatrix(locations).toLists(), matrix.toLists());
+        // The estimated distances aren't cached
+        assertNull(legCache.get(LegKey.of(PROFILE, HOME, CLIENT_1)));
+    }
+
+    @Test
+    void testEstimatedWhenNoRoadFound() {
+        List<GeoCord> locations = List.of(HOME, CLIENT_1);
+        when(orsMatrixClient.fetch(eq(PROFILE), anyList(), anyList()))
+                .thenReturn(Mono.just(new MatrixBlock(2, 2, new double[]{0, Double.NaN, 20, 0}, new double[]{0, Double.NaN, 120, 0})));
+
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(locations, PROFILE).block();
+
+        assertNotNull(matrix);
+        assertEquals(distanceMatrixService.estimateMatrix(locations).toLists(), matrix.toLists());
+    }
+
+    @Test
+    void testPlanMissingLegsWhenNothingIsCached() {
+        boolean[] missing = {
+                false, true, true,
+                true, false, true,
+                true, true, false
+        };
+
+        List<DistanceMatrixService.MissingLegs> requests = DistanceMatrixService.planMissingLegs(missing, 3);
+
+        assertEquals(List.of(new DistanceMatrixService.MissingLegs(List.of(0, 1, 2), List.of(0, 1, 2))), requests);
+    }
+
+    @Test
+    void testPlanMissingLegsOfANewClient() {
+        // The last client is new, so its row and its column are missing
+        boolean[] missing = {
+                false, false, true,
+                false, false, true,
+                true, true, false
+        };
+
+        List<DistanceMatrixService.MissingLegs> requests = DistanceMatrixService.planMissingLegs(missing, 3);
+
+        assertEquals(List.of(
+                new DistanceMatrixService.MissingLegs(List.of(0, 1), List.of(2)),
+                new DistanceMatrixService.MissingLegs(List.of(2), List.of(0, 1))
+        ), requests);
+    }
+
+    @Test
+    void testPrefetchLegsOfANewClient() {
+        // Given the legs between the home and the first client are cached
+        legCache.put(LegKey.of(PROFILE, HOME, CLIENT_1), new Leg(10, 60));
+        legCache.put(LegKey.of(PROFILE, CLIENT_1, HOME), new Leg(20, 120));
+        // Then only the row and the column of the new client are fetched
+        when(orsMatrixClient.fetch(PROFILE, List.of(CLIENT_2), List.of(HOME, CLIENT_1)))
+                .thenReturn(Mono.just(new MatrixBlock(1, 2, new double[]{30, 40}, new double[]{180, 240})));
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_1), List.of(CLIENT_2)))
+                .thenReturn(Mono.just(new MatrixBlock(2, 1, new double[]{50, 60}, new double[]{300, 360})));
+
+        distanceMatrixService.prefetchLegs(CLIENT_2, List.of(HOME, CLIENT_1), PROFILE).block();
+
+        // So the matrix of the next itinerary is already in the cache
+        assertEquals(new Leg(30, 180), legCache.get(LegKey.of(PROFILE, CLIENT_2, HOME)));
+        assertEquals(new Leg(60, 360), legCache.get(LegKey.of(PROFILE, CLIENT_1, CLIENT_2)));
+        verify(orsMatrixClient, times(2)).fetch(eq(PROFILE), anyList(), anyList());
+        DistanceMatrix matrix = distanceMatrixService.getMatrix(List.of(HOME, CLIENT_1, CLIENT_2), PROFILE).block();
+        assertNotNull(matrix);
+        assertEquals(40, matrix.distance(2, 1));
+        verifyNoMoreInteractions(orsMatrixClient);
+    }
+
+    @Test
+    void testPrefetchNothingWhenLegsAreCached() {
+        legCache.put(LegKey.of(PROFILE, HOME, CLIENT_1), new Leg(10, 60));
+        legCache.put(LegKey.of(PROFILE, CLIENT_1, HOME), new Leg(20, 120));
+
+        distanceMatrixService.prefetchLegs(CLIENT_1, List.of(HOME), PROFILE).block();
+
+        verifyNoInteractions(orsMatrixClient, legStore);
+    }
+
+    @Test
+    void testPrefetchFailureIsIgnored() {
+        when(orsMatrixClient.fetch(eq(PROFILE), anyList(), anyList()))
+                .thenReturn(Mono.error(new IllegalStateException("ORS is down")));
+
+        assertDoesNotThrow(() -> distanceMatrixService.prefetchLegs(CLIENT_1, List.of(HOME), PROFILE).block());
+        assertNull(legCache.get(LegKey.of(PROFILE, CLIENT_1, HOME)));
+    }
+
+    @Test
+    void testGetMatricesFetchesSharedLegsOnce() {
+        // Given two matrices sharing the legs between the home and the first client
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_1), List.of(HOME, CLIENT_1)))
+                .thenReturn(Mono.just(new MatrixBlock(2, 2, new double[]{0, 10, 20, 0}, new double[]{0, 60, 120, 0})));
+        when(orsMatrixClient.fetch(PROFILE, List.of(CLIENT_2), List.of(HOME, CLIENT_1)))
+                .thenReturn(Mono.just(new MatrixBlock(1, 2, new double[]{30, 40}, new double[]{180, 240})));
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_1), List.of(CLIENT_2)))
+                .thenReturn(Mono.just(new MatrixBlock(2, 1, new double[]{50, 60}, new double[]{300, 360})));
+
+        // When we get both matrices
+        List<DistanceMatrix> matrices = distanceMatrixService.getMatrices(
+                List.of(List.of(HOME, CLIENT_1), List.of(HOME, CLIENT_1, CLIENT_2)), PROFILE).block();
+
+        // Then the second matrix only fetches the legs of the second client
+        assertNotNull(matrices);
+        assertEquals(List.of(List.of(0.0, 10.0), List.of(20.0, 0.0)), matrices.get(0).toLists());
+        assertEquals(List.of(
+                List.of(0.0, 10.0, 50.0),
+                List.of(20.0, 0.0, 60.0),
+                List.of(30.0, 40.0, 0.0)
+        ), matrices.get(1).toLists());
+        verify(orsMatrixClient, times(3)).fetch(eq(PROFILE), anyList(), anyList());
+        verify(legStore, times(1)).findAll(eq(PROFILE), anyList());
+    }
+
+    @Test
+    void testGetMatricesEstimatesOnlyTheFailedMatrix() {
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_1), List.of(HOME, CLIENT_1)))
+                .thenReturn(Mono.error(new IllegalStateException("ORS is down")));
+        when(orsMatrixClient.fetch(PROFILE, List.of(HOME, CLIENT_2), List.of(HOME, CLIENT_2)))
+                .thenReturn(Mono.just(new MatrixBlock(2, 2, new double[]{0, 10, 20, 0}, new double[]{0, 60, 120, 0})));
+
+        List<DistanceMatrix> matrices = distanceMatrixService.getMatrices(
+                List.of(List.of(HOME, CLIENT_1), List.of(HOME, CLIENT_2)), PROFILE).block();
+
+        assertNotNull(matrices);
+        assertEquals(distanceMatrixService.estimateMatrix(List.of(HOME, CLIENT_1)).toLists(), matrices.get(0).toLists());
+        assertEquals(List.of(List.of(0.0, 10.0), List.of(20.0, 0.0)), matrices.get(1).toLists());
+    }
+}
@@ -0,0 +1,91 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the local distance matrix engine.
+ */
+class GreatCircleMatrixEngineTest {
+
+    // Rodez, Paris and London
+    private static final double[] LATITUDES = {44.3506, 48.8566, 51.5074};
+    private static final double[] LONGITUDES = {2.5750, 2.3522, -0.1278};
+
+    @Test
+    void testComputeGreatCircleDistances() {
+        // Given an engine without road factor
+        GreatCircleMatrixEngine engine = new GreatCircleMatrixEngine(1.0, 50);
+
+        // When we compute the matrix
+        DistanceMatrix matrix = engine.compute(LATITUDES, LONGITUDES);
+
+        // Then the distances are the great-circle distances
+        assertEquals(3, matrix.getSize());
+        assertEquals(343_500, matrix.distance(1, 2), 1_000, "Paris - London should be about 343.5 km");
+        assertEquals(501_300, matrix.distance(0, 1), 1_000, "Rodez - Paris should be about 501.3 km");
+    }
+
+    @Test
+    void testMatrixIsSymmetricWithEmptyDiagonal() {
+        GreatCircleMatrixEngine engine = new GreatCircleMatrixEngine(1.0, 50);
+
+        DistanceMatrix matrix = engine.compute(LATITUDES, LONGITUDES);
+
+        for (int i = 0; i < matrix.getSize(); i++) {
+            assertEquals(0.0, matrix.distance(i, i));
+            for (int j = 0; j < matrix.getSize(); j++) {
+                assertEquals(matrix.distance(i, j), matrix.distance(j, i));
+            }
+        }
+    }
+
+    @Test
+    void testRoadFactorIsApplied() {
+        DistanceMatrix straight = new GreatCircleMatrixEngine(1.0, 50).compute(LATITUDES, LONGITUDES);
+        DistanceMatrix road = new GreatCircleMatrixEngine(1.3, 50).compute(LATITUDES, LONGITUDES);
+
+        assertEquals(straight.distance(0, 2) * 1.3, road.distance(0, 2), 0.001);
+    }
+
+    @Test
+    void testDurationsAtAverageSpeed() {
+        // At 36 km/h, we drive 10 meters per second
+        DistanceMatrix matrix = new GreatCircleMatrixEngine(1.3, 36).compute(LATITUDES, LONGITUDES);
+
+        assertEquals(matrix.distance(0, 1) / 10, matrix.duration(0, 1), 0.001);
+        assertEquals(0.0, matrix.duration(1, 1));
+    }
+
+    @Test
+    void testAverageSpeedNotPositive() {
+        assertThrows(IllegalArgumentException.class, () -> new GreatCircleMatrixEngine(1.3, 0));
+    }
+
+    @Test
+    void testRoadFactorLowerThanOne() {
+        assertThrows(IllegalArgumentException.class, () -> new GreatCircleMatrixEngine(0.5, 50));
+    }
+
+    @Test
+    void testToLists() {
+        DistanceMatrix matrix = new DistanceMatrix(2, new double[]{0.0, 1.0, 2.0, 0.0}, new double[]{0.0, 3.0, 4.0, 0.0});
+
+        assertEquals(List.of(List.of(0.0, 1.0), List.of(2.0, 0.0)), matrix.toLists());
+    }
+
+    @Test
+    void testCostsOfEachObjective() {
+        // The mean distance is 1 and the mean duration is 100
+        DistanceMatrix matrix = new DistanceMatrix(2, new double[]{0.0, 1.0, 3.0, 0.0}, new double[]{0.0, 300.0, 100.0, 0.0});
+
+        assertEquals(matrix.toLists(), matrix.costs(Objective.DISTANCE, 0.5));
+        assertEquals(List.of(List.of(0.0, 300.0), List.of(100.0, 0.0)), matrix.costs(Objective.DURATION, 0.5));
+        // Both are divided by their mean, then mixed
+        assertEquals(List.of(List.of(0.0, 2.0), List.of(2.0, 0.0)), matrix.costs(Objective.WEIGHTED, 0.5));
+        assertEquals(List.of(List.of(0.0, 3.0), List.of(1.0, 0.0)), matrix.costs(Objective.WEIGHTED, 1));
+    }
+}
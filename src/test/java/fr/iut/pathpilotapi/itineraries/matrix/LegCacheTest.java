@@ -0,0 +1,71 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the cache of the legs.
+ */
+class LegCacheTest {
+
+    private static final GeoCord RODEZ = new GeoCord(44.3506, 2.5750);
+    private static final GeoCord PARIS = new GeoCord(48.8566, 2.3522);
+    private static final GeoCord LONDON = new GeoCord(51.5074, -0.1278);
+
+    @Test
+    void testPutAndGet() {
+        LegCache legCache = new LegCache(10, Duration.ofDays(1));
+        LegKey key = LegKey.of("driving-car", RODEZ, PARIS);
+
+        legCache.put(key, new Leg(600_000, 21_600));
+
+        assertEquals(new Leg(600_000, 21_600), legCache.get(key));
+        // The leg is oriented, the way back isn't in the cache
+        assertNull(legCache.get(LegKey.of("driving-car", PARIS, RODEZ)));
+        // The leg depends on the profile
+        assertNull(legCache.get(LegKey.of("cycling-regular", RODEZ, PARIS)));
+    }
+
+    @Test
+    void testKeyIsQuantised() {
+        LegKey key = LegKey.of("driving-car", RODEZ, PARIS);
+        // Less than a meter away
+        LegKey closeKey = LegKey.of("driving-car", new GeoCord(44.350601, 2.575001), PARIS);
+
+        assertEquals(key, closeKey);
+    }
+
+    @Test
+    void testExpiredLegIsNotReturned() {
+        LegCache legCache = new LegCache(10, Duration.ZERO);
+        LegKey key = LegKey.of("driving-car", RODEZ, PARIS);
+
+        legCache.put(key, new Leg(600_000, 21_600));
+
+        assertNull(legCache.get(key));
+        assertEquals(0, legCache.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedLegIsEvicted() {
+        LegCache legCache = new LegCache(2, Duration.ofDays(1));
+        LegKey rodezParis = LegKey.of("driving-car", RODEZ, PARIS);
+        LegKey parisLondon = LegKey.of("driving-car", PARIS, LONDON);
+        LegKey londonRodez = LegKey.of("driving-car", LONDON, RODEZ);
+
+        legCache.put(rodezParis, new Leg(1, 1));
+        legCache.put(parisLondon, new Leg(2, 2));
+        // Rodez - Paris becomes the most recently used leg
+        legCache.get(rodezParis);
+        legCache.put(londonRodez, new Leg(3, 3));
+
+        assertEquals(2, legCache.size());
+        assertNotNull(legCache.get(rodezParis));
+        assertNull(legCache.get(parisLondon));
+        assertNotNull(legCache.get(londonRodez));
+    }
+}
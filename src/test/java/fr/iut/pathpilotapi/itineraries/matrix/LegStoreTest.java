@@ -0,0 +1,100 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import fr.iut.pathpilotapi.GeoCord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class to test the persistent store of the legs.
+ */
+class LegStoreTest {
+
+    private static final String PROFILE = "driving-car";
+    private static final GeoCord HOME = new GeoCord(44.3506, 2.5750);
+    private static final GeoCord CLIENT = new GeoCord(44.3585, 2.5672);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @Mock
+    private BulkOperations bulkOperations;
+
+    private LegStore legStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        legStore = new LegStore(mongoTemplate, Duration.ofDays(30));
+    }
+
+    @Test
+    void testFindAllIgnoresOtherLegs() {
+        // Given a stored leg of the matrix, and a leg matching the latitude of a location and the longitude of another one
+        DistanceLeg leg = distanceLeg(LegKey.of(PROFILE, HOME, CLIENT), 10, 60.0);
+        DistanceLeg otherLeg = distanceLeg(LegKey.of(PROFILE,
+                new GeoCord(HOME.latitude(), CLIENT.longitude()), CLIENT), 99, 594.0);
+        when(mongoTemplate.find(any(Query.class), eq(DistanceLeg.class))).thenReturn(List.of(leg, otherLeg));
+
+        // When we find the legs of the matrix
+        Map<LegKey, Leg> legs = legStore.findAll(PROFILE, List.of(HOME, CLIENT));
+
+        // Then only the leg of the matrix is returned
+        assertEquals(Map.of(LegKey.of(PROFILE, HOME, CLIENT), new Leg(10, 60)), legs);
+    }
+
+    @Test
+    void testFindAllIgnoresLegsWithoutDuration() {
+        // Given a leg stored before the durations were fetched
+        DistanceLeg leg = distanceLeg(LegKey.of(PROFILE, HOME, CLIENT), 10, null);
+        when(mongoTemplate.find(any(Query.class), eq(DistanceLeg.class))).thenReturn(List.of(leg));
+
+        // Then it's missing, so it's fetched again
+        assertTrue(legStore.findAll(PROFILE, List.of(HOME, CLIENT)).isEmpty());
+    }
+
+    @Test
+    void testSaveAllUpsertsInBulk() {
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DistanceLeg.class)).thenReturn(bulkOperations);
+
+        legStore.saveAll(Map.of(
+                LegKey.of(PROFILE, HOME, CLIENT), new Leg(10, 60),
+                LegKey.of(PROFILE, CLIENT, HOME), new Leg(20, 120)));
+
+        verify(bulkOperations, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations).execute();
+    }
+
+    @Test
+    void testSaveNothing() {
+        legStore.saveAll(Map.of());
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    private static DistanceLeg distanceLeg(LegKey key, double distance, Double duration) {
+        DistanceLeg leg = new DistanceLeg();
+        leg.setProfile(key.profile());
+        leg.setFromLat(key.fromLat());
+        leg.setFromLon(key.fromLon());
+        leg.setToLat(key.toLat());
+        leg.setToLon(key.toLon());
+        leg.setDistance(distance);
+        leg.setDuration(duration);
+        return leg;
+    }
+}
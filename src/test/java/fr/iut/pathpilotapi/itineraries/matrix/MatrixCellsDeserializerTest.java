@@ -0,0 +1,81 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import fr.iut.pathpilotapi.itineraries.dto.MatrixDistancesResponseModel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the reading of the matrices returned by OpenRouteService.
+ */
+class MatrixCellsDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testReadDistances() throws Exception {
+        // Given a response of ORS with a location without road
+        String json = """
+                {"distances": [[0, 1.5, null], [2, 0, 3.25]], "metadata": {"service": "matrix"}}""";
+
+        // When we read it
+        MatrixDistancesResponseModel response = objectMapper
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+                .readValue(json, MatrixDistancesResponseModel.class);
+
+        // Then the cells are flattened row by row, the null cell is NaN
+        MatrixCells distances = response.getDistances();
+        assertEquals(2, distances.rows());
+        assertEquals(3, distances.columns());
+        assertArrayEquals(new double[]{0, 1.5, Double.NaN, 2, 0, 3.25}, distances.cells());
+    }
+
+    @Test
+    void testReadLargeMatrix() throws Exception {
+        // Given a matrix with more cells than the initial capacity
+        int size = 50;
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            json.append(i == 0 ? "[" : ",[");
+            for (int j = 0; j < size; j++) {
+                json.append(j == 0 ? "" : ",").append(i * size + j);
+            }
+            json.append("]");
+        }
+        json.append("]");
+
+        MatrixCells cells = objectMapper.readValue(json.toString(), MatrixCells.class);
+
+        assertEquals(size, cells.rows());
+        assertEquals(size, cells.columns());
+        assertEquals(size * size, cells.cells().length);
+        assertEquals(size * size - 1, cells.cells()[size * size - 1]);
+    }
+
+    @Test
+    void testReadEmptyMatrix() throws Exception {
+        MatrixCells cells = objectMapper.readValue("[]", MatrixCells.class);
+
+        assertEquals(0, cells.rows());
+        assertEquals(0, cells.columns());
+        assertEquals(0, cells.cells().length);
+    }
+
+    @Test
+    void testRowsOfDifferentSizes() {
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("[[0, 1], [2]]", MatrixCells.class));
+    }
+
+    @Test
+    void testCellIsNotANumber() {
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("[[0, \"1\"]]", MatrixCells.class));
+    }
+
+    @Test
+    void testMatrixIsNotAnArray() {
+        assertThrows(JsonMappingException.class, () -> objectMapper.readValue("{\"rows\": 2}", MatrixCells.class));
+    }
+}
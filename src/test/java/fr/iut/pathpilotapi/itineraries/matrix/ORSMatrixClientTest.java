@@ -0,0 +1,71 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the split of the matrices sent to OpenRouteService.
+ */
+class ORSMatrixClientTest {
+
+    @Test
+    void testPlanTilesOfASquareMatrix() {
+        List<ORSMatrixClient.Tile> tiles = ORSMatrixClient.planTiles(60, 60, 50);
+
+        // 25 sources and 25 destinations by tile
+        assertEquals(9, tiles.size());
+        assertEquals(new ORSMatrixClient.Tile(0, 25, 0, 25), tiles.getFirst());
+        assertEquals(new ORSMatrixClient.Tile(50, 10, 50, 10), tiles.getLast());
+        assertTilesCoverTheMatrix(tiles, 60, 60);
+    }
+
+    @Test
+    void testPlanTilesOfASingleRow() {
+        List<ORSMatrixClient.Tile> tiles = ORSMatrixClient.planTiles(1, 100, 50);
+
+        // The row uses a single location, so each tile has 49 destinations
+        assertEquals(List.of(
+                new ORSMatrixClient.Tile(0, 1, 0, 49),
+                new ORSMatrixClient.Tile(0, 1, 49, 49),
+                new ORSMatrixClient.Tile(0, 1, 98, 2)
+        ), tiles);
+    }
+
+    @Test
+    void testPlanTilesOfASingleColumn() {
+        List<ORSMatrixClient.Tile> tiles = ORSMatrixClient.planTiles(100, 1, 50);
+
+        assertEquals(3, tiles.size());
+        assertTilesCoverTheMatrix(tiles, 100, 1);
+    }
+
+    @Test
+    void testTilesRespectTheMaxLocations() {
+        for (ORSMatrixClient.Tile tile : ORSMatrixClient.planTiles(37, 83, 20)) {
+            assertTrue(tile.rows() + tile.columns() <= 20);
+        }
+        assertTilesCoverTheMatrix(ORSMatrixClient.planTiles(37, 83, 20), 37, 83);
+    }
+
+    @Test
+    void testMaxLocationsTooLow() {
+        assertThrows(IllegalArgumentException.class, () -> new ORSMatrixClient(null, null, 1, 4));
+    }
+
+    private static void assertTilesCoverTheMatrix(List<ORSMatrixClient.Tile> tiles, int rows, int columns) {
+        int[] covered = new int[rows * columns];
+        for (ORSMatrixClient.Tile tile : tiles) {
+            for (int i = tile.firstRow(); i < tile.firstRow() + tile.rows(); i++) {
+                for (int j = tile.firstColumn(); j < tile.firstColumn() + tile.columns(); j++) {
+                    covered[i * columns + j]++;
+                }
+            }
+        }
+        for (int count : covered) {
+            assertEquals(1, count, "Each cell must be in exactly one tile");
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the protection of the calls to OpenRouteService.
+ */
+class ORSResilienceTest {
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private ORSResilience orsResilience;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+        RetryRegistry retryRegistry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(3)
+                .waitDuration(Duration.ofMillis(1))
+                .retryExceptions(TimeoutException.class, WebClientResponseException.ServiceUnavailable.class)
+                .build());
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        orsResilience = new ORSResilience(bulkheadRegistry, circuitBreakerRegistry, retryRegistry, Duration.ofMillis(100));
+    }
+
+    @Test
+    void testRetryOnServiceUnavailable() {
+        // Given ORS is unavailable on the first call
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> calls.incrementAndGet() == 1
+                ? Mono.error(error(503))
+                : Mono.just("matrix"));
+
+        // Then the call is retried
+        assertEquals("matrix", orsResilience.protect(call).block());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testNoRetryOnBadRequest() {
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.error(error(400));
+        });
+
+        assertThrows(WebClientResponseException.BadRequest.class, () -> orsResilience.protect(call).block());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void testTimeout() {
+        AtomicInteger calls = new AtomicInteger();
+        Mono<String> call = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.never();
+        });
+
+        Exception exception = assertThrows(RuntimeException.class, () -> orsResilience.protect(call).block());
+
+        assertInstanceOf(TimeoutException.class, exception.getCause());
+        assertEquals(3, calls.get(), "A call too long is retried");
+    }
+
+    @Test
+    void testOpenCircuitRejectsCalls() {
+        circuitBreakerRegistry.circuitBreaker(ORSResilience.INSTANCE).transitionToOpenState();
+        AtomicInteger calls = new AtomicInteger();
+
+        Mono<String> call = Mono.fromCallable(() -> {
+            calls.incrementAndGet();
+            return "matrix";
+        });
+
+        assertThrows(CallNotPermittedException.class, () -> orsResilience.protect(call).block());
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void testBulkheadFull() {
+        // Given a call is already running
+        orsResilience.protect(Mono.never()).subscribe();
+
+        assertThrows(BulkheadFullException.class, () -> orsResilience.protect(Mono.just("matrix")).block());
+    }
+
+    private static WebClientResponseException error(int status) {
+        return WebClientResponseException.create(status, "Error", null, null, null);
+    }
+}
@@ -0,0 +1,89 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the local stand-in of OpenRouteService.
+ */
+class ORSStubServerTest {
+
+    // Rodez, Paris and London as [longitude, latitude]
+    private static final String REQUEST = """
+            {"locations": [[2.5750, 44.3506], [2.3522, 48.8566], [-0.1278, 51.5074]],
+             "metrics": ["distance", "duration"], "sources": [0], "destinations": [1, 2]}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final GreatCircleMatrixEngine engine = new GreatCircleMatrixEngine(1.3, 50);
+
+    private ORSStubServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void testMatrixOfTheSourcesAndDestinations() throws Exception {
+        // Given a stub started on a random port
+        server = new ORSStubServer(engine, objectMapper, 0, Duration.ZERO, 0, 42);
+        server.start();
+
+        // When we ask the matrix from Rodez to Paris and London
+        HttpResponse<String> response = post(REQUEST);
+
+        // Then it's computed like the local engine
+        assertEquals(200, response.statusCode());
+        JsonNode body = objectMapper.readTree(response.body());
+        DistanceMatrix expected = engine.compute(new double[]{44.3506, 48.8566, 51.5074}, new double[]{2.5750, 2.3522, -0.1278});
+        assertEquals(1, body.get("distances").size());
+        assertEquals(2, body.get("distances").get(0).size());
+        assertEquals(expected.distance(0, 2), body.get("distances").get(0).get(1).asDouble(), 0.001);
+        assertEquals(expected.duration(0, 1), body.get("durations").get(0).get(0).asDouble(), 0.001);
+    }
+
+    @Test
+    void testInjectedErrors() throws Exception {
+        server = new ORSStubServer(engine, objectMapper, 0, Duration.ZERO, 1, 42);
+        server.start();
+
+        assertEquals(503, post(REQUEST).statusCode());
+    }
+
+    @Test
+    void testInvalidRequest() throws Exception {
+        server = new ORSStubServer(engine, objectMapper, 0, Duration.ZERO, 0, 42);
+        server.start();
+
+        assertEquals(400, post("{\"metrics\": [\"distance\"]}").statusCode());
+    }
+
+    @Test
+    void testInvalidErrorRate() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ORSStubServer(engine, objectMapper, 0, Duration.ZERO, 1.5, 42));
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/matrix/driving-car"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package fr.iut.pathpilotapi.itineraries.matrix;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the sharing of identical calls.
+ */
+class SingleFlightTest {
+
+    @Test
+    void testIdenticalCallsAreShared() {
+        // Given a call which doesn't complete immediately
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        Sinks.One<Integer> response = Sinks.one();
+
+        // When two identical calls are made before the end of the first one
+        Mono<Integer> first = singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        });
+        Mono<Integer> second = singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return response.asMono();
+        });
+        Integer[] results = new Integer[2];
+        first.subscribe(result -> results[0] = result);
+        second.subscribe(result -> results[1] = result);
+        response.tryEmitValue(42);
+
+        // Then only one call is made and both get its result
+        assertEquals(1, calls.get());
+        assertArrayEquals(new Integer[]{42, 42}, results);
+        assertEquals(0, singleFlight.size());
+    }
+
+    @Test
+    void testDifferentCallsAreNotShared() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        Integer first = singleFlight.execute("first", () -> Mono.just(1)).block();
+        Integer second = singleFlight.execute("second", () -> Mono.just(2)).block();
+
+        assertEquals(1, first);
+        assertEquals(2, second);
+    }
+
+    @Test
+    void testCallAfterCompletionIsNotShared() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("key", () -> Mono.fromCallable(calls::incrementAndGet)).block();
+        Integer second = singleFlight.execute("key", () -> Mono.fromCallable(calls::incrementAndGet)).block();
+
+        assertEquals(2, second);
+    }
+
+    @Test
+    void testErrorIsNotKept() {
+        SingleFlight<String, Integer> singleFlight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class,
+                () -> singleFlight.execute("key", () -> Mono.<Integer>error(new IllegalStateException())).block());
+
+        assertEquals(1, singleFlight.execute("key", () -> Mono.just(1)).block());
+        assertEquals(0, singleFlight.size());
+    }
+}
@@ -380,6 +380,7 @@ class RouteControllerIntegrationTest {
         clientDTO.setId(clientCreated.getId());
 
         Route route = IntegrationTestUtils.createRoute(salesmanConnected, List.of(clientDTO));
+        route.setState(RouteState.IN_PROGRESS);
         routeRepository.save(route);
 
         // When pausing the route
@@ -392,6 +393,22 @@ class RouteControllerIntegrationTest {
                 .andExpect(jsonPath("$.state").value("PAUSED"));
     }
 
+    @Test
+    @WithMockSalesman(email = EMAIL_SALESMAN_CONNECTED, password = PASSWORD_SALESMAN_CONNECTED)
+    void testPauseRouteNotInProgress() throws Exception {
+        Salesman salesmanConnected = salesmanRepository.findByEmailAddress(EMAIL_SALESMAN_CONNECTED).orElseThrow();
+
+        // Given a stopped route in the database
+        Route route = IntegrationTestUtils.createRoute(salesmanConnected, List.of());
+        route.setState(RouteState.STOPPED);
+        routeRepository.save(route);
+
+        // When pausing the route
+        mockMvc.perform(patch(API_ROUTE_URL + "/" + route.getId() + "/pause"))
+                // Then we should get a 409 Conflict status
+                .andExpect(status().isConflict());
+    }
+
     @Test
     @WithMockSalesman(email = EMAIL_SALESMAN_CONNECTED, password = PASSWORD_SALESMAN_CONNECTED)
     void testPauseRouteWithInvalidRoute() throws Exception {
@@ -438,6 +455,7 @@ class RouteControllerIntegrationTest {
         clientDTO.setId(clientCreated.getId());
 
         Route route = IntegrationTestUtils.createRoute(salesmanConnected, List.of(clientDTO));
+        route.setState(RouteState.PAUSED);
         routeRepository.save(route);
 
         // When starting the route
@@ -486,11 +504,16 @@ class RouteControllerIntegrationTest {
         clientNotNearby.setLatHomeAddress(10.0);
         clientNotNearby.setLongHomeAddress(10.0);
 
-        clientRepository.saveAll(clientsNearby).forEach(client ->
-                mongoClientRepository.save(new MongoClient(client.getId(), client.getLatHomeAddress(), client.getLongHomeAddress()))
-        );
+        Integer salesmanId = salesmanConnected.getId();
+        clientRepository.saveAll(clientsNearby).forEach(client -> {
+            MongoClient mongoClient = new MongoClient(client.getId(), client.getLatHomeAddress(), client.getLongHomeAddress());
+            mongoClient.setSalesmanId(salesmanId);
+            mongoClientRepository.save(mongoClient);
+        });
         clientNotNearby = clientRepository.save(clientNotNearby);
-        mongoClientRepository.save(new MongoClient(clientNotNearby.getId(), clientNotNearby.getLatHomeAddress(), clientNotNearby.getLongHomeAddress()));
+        MongoClient mongoClientNotNearby = new MongoClient(clientNotNearby.getId(), clientNotNearby.getLatHomeAddress(), clientNotNearby.getLongHomeAddress());
+        mongoClientNotNearby.setSalesmanId(salesmanId);
+        mongoClientRepository.save(mongoClientNotNearby);
 
 
         Route route = IntegrationTestUtils.createRoute(salesmanConnected, new ArrayList<>());
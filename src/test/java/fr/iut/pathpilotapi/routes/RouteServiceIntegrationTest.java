@@ -7,11 +7,13 @@ import fr.iut.pathpilotapi.clients.entity.MongoClient;
 import fr.iut.pathpilotapi.clients.repository.ClientRepository;
 import fr.iut.pathpilotapi.clients.repository.MongoClientRepository;
 import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
+import fr.iut.pathpilotapi.exceptions.RouteStateException;
 import fr.iut.pathpilotapi.itineraries.Itinerary;
 import fr.iut.pathpilotapi.itineraries.ItineraryRepository;
 import fr.iut.pathpilotapi.itineraries.ItineraryService;
 import fr.iut.pathpilotapi.itineraries.dto.ClientDTO;
 import fr.iut.pathpilotapi.routes.dto.ClientState;
+import fr.iut.pathpilotapi.routes.position.SalesmanPosition;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import fr.iut.pathpilotapi.salesman.SalesmanRepository;
 import fr.iut.pathpilotapi.test.IntegrationTestUtils;
@@ -20,13 +22,16 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -321,6 +326,19 @@ class RouteServiceIntegrationTest {
         assertEquals(RouteState.STOPPED, updatedRoute.getState());
     }
 
+    @Test
+    public void testSaveOutdatedRoute() {
+        // Given a copy of a route read before its state changed
+        Route route = routeRepository.save(IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList()));
+        Route outdatedRoute = routeRepository.findById(route.getId()).orElseThrow();
+        routeService.stopRoute(route.getId(), salesman);
+
+        // When saving the outdated copy, then the change of state isn't overwritten
+        outdatedRoute.setState(RouteState.IN_PROGRESS);
+        assertThrows(OptimisticLockingFailureException.class, () -> routeRepository.save(outdatedRoute));
+        assertEquals(RouteState.STOPPED, routeService.findByIdAndConnectedSalesman(route.getId(), salesman).getState());
+    }
+
     @Test
     public void testStopRouteWithInvalidRoute() {
         // When stopping a non-existing route
@@ -349,6 +367,18 @@ class RouteServiceIntegrationTest {
         assertEquals(String.format(RouteService.ROUTE_NOT_BELONGS_TO_SALESMAN, route.getId()), exception.getMessage());
     }
 
+    @Test
+    public void testPauseStoppedRoute() {
+        // Given a stopped route
+        Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
+        routeRepository.save(route);
+        routeService.stopRoute(route.getId(), salesman);
+
+        // When pausing the route, then it can't go back to PAUSED
+        assertThrows(RouteStateException.class, () -> routeService.pauseRoute(route.getId(), salesman));
+        assertEquals(RouteState.STOPPED, routeService.findByIdAndConnectedSalesman(route.getId(), salesman).getState());
+    }
+
     @Test
     public void testPauseRouteButRouteDoesNotBelongToSalesman() {
         // Given two salesmen and a route that belongs to the first salesman
@@ -368,10 +398,11 @@ class RouteServiceIntegrationTest {
 
     @Test
     public void testResumeRoute() {
-        // given a route
+        // given a paused route
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesmanRepository.save(salesman);
         Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
+        route.setState(RouteState.PAUSED);
         route = routeRepository.save(route);
 
         GeoCord geoCord = new GeoCord(48.8566, 2.3522);
@@ -413,12 +444,35 @@ class RouteServiceIntegrationTest {
         routeRepository.save(route);
 
         // When updating the salesman's position
-        routeService.updateSalesmanPosition(route.getId(), salesman, newPosition);
+        routeService.updateSalesmanPosition(route.getId(), salesman, newPosition, null);
 
-        // Then the route should be updated with the new position and nearby clients should be returned
+        // Then the route should hold the new position, and the trace should contain it
         Route updatedRoute = routeRepository.findById(route.getId()).orElseThrow();
-        assertEquals(2, updatedRoute.getSalesmanPositions().getCoordinates().size());
-        assertEquals(new GeoJsonPoint(2.0, 44.0), updatedRoute.getSalesmanPositions().getCoordinates().get(1));
+        assertEquals(new GeoJsonPoint(2.0, 44.0), updatedRoute.getSalesmanCurrentPosition());
+        List<SalesmanPosition> trace = routeService.getSalesmanTrace(route.getId(), salesman, null, null, 10);
+        assertEquals(1, trace.size());
+        assertEquals(newPosition, trace.get(0).toGeoCord());
+    }
+
+    @Test
+    void testUpdateSalesmanPositionRecordedBeforeTheCurrentOne() {
+        // Given a route with a position recorded now
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesmanRepository.save(salesman);
+        Route route = IntegrationTestUtils.createRoute(salesman, List.of());
+        routeRepository.save(route);
+        Instant now = Instant.now();
+        routeService.updateSalesmanPosition(route.getId(), salesman, new GeoCord(44.1, 2.1), now);
+
+        // When a position recorded a minute ago is uploaded late
+        boolean latest = routeService.updateSalesmanPosition(route.getId(), salesman, new GeoCord(44.0, 2.0), now.minusSeconds(60));
+
+        // Then the salesman isn't moved back, but the position is added to the trace
+        assertFalse(latest);
+        Route updatedRoute = routeRepository.findById(route.getId()).orElseThrow();
+        assertEquals(new GeoJsonPoint(2.1, 44.1), updatedRoute.getSalesmanCurrentPosition());
+        List<SalesmanPosition> trace = routeService.getSalesmanTrace(route.getId(), salesman, null, null, 10);
+        assertEquals(List.of(new GeoCord(44.0, 2.0), new GeoCord(44.1, 2.1)), trace.stream().map(SalesmanPosition::toGeoCord).toList());
     }
 
     @Test
@@ -431,7 +485,7 @@ class RouteServiceIntegrationTest {
 
         // When updating the salesman's position
         Exception exception = assertThrows(ObjectNotFoundException.class, () -> {
-            routeService.updateSalesmanPosition(routeId, salesman, newPosition);
+            routeService.updateSalesmanPosition(routeId, salesman, newPosition, null);
         });
 
         // Then an exception should be thrown with the message "Route not found with ID: invalidRouteId"
@@ -446,21 +500,22 @@ class RouteServiceIntegrationTest {
         Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
         routeRepository.save(route);
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        GeoJsonPoint nearbyPoint = new GeoJsonPoint(2.01, 44.01);
-        double distanceInKm = 1.0;
+        GeoJsonPoint nearbyPoint = new GeoJsonPoint(2.005, 44.005);
+        Distance distance = new Distance(1.0, Metrics.KILOMETERS);
         MongoClient client = new MongoClient();
+        client.setSalesmanId(salesman.getId());
         client.setId(1);
         client.setCategory(new ClientCategory("PROSPECT"));
         client.setLocation(nearbyPoint);
         mongoTemplate.save(client);
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(distanceInKm));
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), distance);
 
         // Then the result should contain the expected clients
         assertNotNull(nearbyClients);
-        assertEquals(1, nearbyClients.getTotalElements());
-        assertEquals(client, nearbyClients.getContent().get(0));
+        assertEquals(1, nearbyClients.getContent().size());
+        assertEquals(client, nearbyClients.getContent().get(0).getContent());
     }
 
     @Test
@@ -471,12 +526,14 @@ class RouteServiceIntegrationTest {
         Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
         routeRepository.save(route);
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        double distanceInKm = 1.0;
+        Distance distance = new Distance(1.0, Metrics.KILOMETERS);
         MongoClient client1 = new MongoClient();
+        client1.setSalesmanId(salesman.getId());
         client1.setId(1);
         client1.setCategory(new ClientCategory("PROSPECT"));
-        client1.setLocation(new GeoJsonPoint(2.01, 44.01));
+        client1.setLocation(new GeoJsonPoint(2.005, 44.005));
         MongoClient client2 = new MongoClient();
+        client2.setSalesmanId(salesman.getId());
         client2.setId(2);
         client2.setCategory(new ClientCategory("PROSPECT"));
         client2.setLocation(new GeoJsonPoint(3, 44.0));
@@ -484,12 +541,12 @@ class RouteServiceIntegrationTest {
         mongoTemplate.save(client2);
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(client2), new Distance(distanceInKm));
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(client2), distance);
 
         // Then the result should contain the expected clients
         assertNotNull(nearbyClients);
-        assertEquals(1, nearbyClients.getTotalElements());
-        assertEquals(client1, nearbyClients.getContent().get(0));
+        assertEquals(1, nearbyClients.getContent().size());
+        assertEquals(client1, nearbyClients.getContent().get(0).getContent());
     }
 
     @Test
@@ -500,14 +557,14 @@ class RouteServiceIntegrationTest {
         Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
         routeRepository.save(route);
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        double distanceInKm = 1.0;
+        Distance distance = new Distance(1.0, Metrics.KILOMETERS);
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(distanceInKm));
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), distance);
 
         // Then the result should be an empty list
         assertNotNull(nearbyClients);
-        assertTrue(nearbyClients.isEmpty());
+        assertTrue(nearbyClients.getContent().isEmpty());
     }
 
     @Test
@@ -518,19 +575,20 @@ class RouteServiceIntegrationTest {
         Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
         routeRepository.save(route);
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        double distanceInKm = 1.0;
+        Distance distance = new Distance(1.0, Metrics.KILOMETERS);
         MongoClient client = new MongoClient();
         client.setCategory(new ClientCategory("PROSPECT"));
+        client.setSalesmanId(salesman.getId());
         client.setId(1);
         client.setLocation(new GeoJsonPoint(3.0, 45.0));
         mongoTemplate.save(client);
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(client), new Distance(distanceInKm));
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(client), distance);
 
         // Then the result should be an empty list
         assertNotNull(nearbyClients);
-        assertTrue(nearbyClients.isEmpty());
+        assertTrue(nearbyClients.getContent().isEmpty());
     }
 
     @Test
@@ -541,19 +599,68 @@ class RouteServiceIntegrationTest {
         Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
         routeRepository.save(route);
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        double distanceInKm = 1.0;
+        Distance distance = new Distance(1.0, Metrics.KILOMETERS);
         MongoClient client = new MongoClient();
         client.setCategory(new ClientCategory("WRONG"));
+        client.setSalesmanId(salesman.getId());
         client.setId(1);
-        client.setLocation(new GeoJsonPoint(2.01, 44.01));
+        client.setLocation(new GeoJsonPoint(2.005, 44.005));
         mongoTemplate.save(client);
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(distanceInKm));
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), distance);
 
         // Then the result should be an empty list
         assertNotNull(nearbyClients);
-        assertTrue(nearbyClients.isEmpty());
+        assertTrue(nearbyClients.getContent().isEmpty());
+    }
+
+
+    @Test
+    void testFindNearbyClientsOfAnotherSalesman() {
+        // Given a route, a salesman, and a prospect of another salesman close to the point
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesmanRepository.save(salesman);
+        Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
+        routeRepository.save(route);
+        GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
+        MongoClient client = new MongoClient();
+        client.setSalesmanId(salesman.getId() + 1);
+        client.setId(1);
+        client.setCategory(new ClientCategory("PROSPECT"));
+        client.setLocation(new GeoJsonPoint(2.005, 44.005));
+        mongoTemplate.save(client);
+
+        // When finding nearby clients
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(1.0, Metrics.KILOMETERS));
+
+        // Then the prospect of the other salesman is not returned
+        assertTrue(nearbyClients.getContent().isEmpty());
+    }
+
+    @Test
+    void testFindNearbyClientsSortedByDistance() {
+        // Given a route, a salesman, and two prospects close to the point
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesmanRepository.save(salesman);
+        Route route = IntegrationTestUtils.createRoute(salesman, clients.stream().map(ClientDTO::new).toList());
+        routeRepository.save(route);
+        GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
+        MongoClient farther = new MongoClient(1, 44.005, 2.005);
+        farther.setSalesmanId(salesman.getId());
+        MongoClient nearer = new MongoClient(2, 44.001, 2.001);
+        nearer.setSalesmanId(salesman.getId());
+        mongoTemplate.save(farther);
+        mongoTemplate.save(nearer);
+
+        // When finding nearby clients
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(1.0, Metrics.KILOMETERS));
+
+        // Then the nearest prospect comes first, with its distance
+        assertEquals(2, nearbyClients.getContent().size());
+        assertEquals(nearer, nearbyClients.getContent().get(0).getContent());
+        assertEquals(farther, nearbyClients.getContent().get(1).getContent());
+        assertTrue(nearbyClients.getContent().get(0).getDistance().getValue() < nearbyClients.getContent().get(1).getDistance().getValue());
     }
 
 
@@ -5,19 +5,27 @@
 
 package fr.iut.pathpilotapi.routes;
 
+import com.mongodb.client.result.UpdateResult;
 import fr.iut.pathpilotapi.GeoCord;
 import fr.iut.pathpilotapi.clients.entity.ClientCategory;
 import fr.iut.pathpilotapi.clients.entity.MongoClient;
-import fr.iut.pathpilotapi.clients.repository.MongoClientRepository;
 import fr.iut.pathpilotapi.exceptions.ObjectNotFoundException;
+import fr.iut.pathpilotapi.exceptions.RouteStateException;
+import fr.iut.pathpilotapi.exceptions.SalesmanBelongingException;
 import fr.iut.pathpilotapi.itineraries.Itinerary;
 import fr.iut.pathpilotapi.itineraries.ItineraryService;
 import fr.iut.pathpilotapi.itineraries.dto.ClientDTO;
 import fr.iut.pathpilotapi.routes.dto.ClientState;
+import fr.iut.pathpilotapi.routes.dto.SalesmanPositionRequestModel;
+import fr.iut.pathpilotapi.routes.nearby.ProspectIndex;
+import fr.iut.pathpilotapi.routes.position.SalesmanPosition;
+import fr.iut.pathpilotapi.routes.position.SalesmanPositionStore;
 import fr.iut.pathpilotapi.salesman.Salesman;
 import fr.iut.pathpilotapi.test.IntegrationTestUtils;
 import org.junit.jupiter.api.BeforeEach;
+import org.bson.Document;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
@@ -25,14 +33,24 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 class RouteServiceTest {
@@ -40,15 +58,18 @@ class RouteServiceTest {
     @Mock
     private RouteRepository routeRepository;
 
-    @Mock
-    private MongoClientRepository mongoClientRepository;
-
     @Mock
     private MongoTemplate mongoTemplate;
 
     @Mock
     private ItineraryService itineraryService;
 
+    @Mock
+    private SalesmanPositionStore salesmanPositionStore;
+
+    @Mock
+    private ProspectIndex prospectIndex;
+
     @InjectMocks
     private RouteService routeService;
 
@@ -132,15 +153,16 @@ class RouteServiceTest {
         salesman.setId(1);
         List<ClientDTO> clients = Collections.emptyList();
         Route route = IntegrationTestUtils.createRoute(salesman, clients);
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
-        doNothing().when(routeRepository).delete(route);
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
+        doNothing().when(routeRepository).deleteById(route.getId());
 
         // When deleting a route by ID and connected salesman
         routeService.deleteByIdAndConnectedSalesman(route.getId(), salesman);
 
-        // Then the repository should find the route and delete it once
-        verify(routeRepository, times(1)).findById(route.getId());
-        verify(routeRepository, times(1)).delete(route);
+        // Then the repository should only read the owner of the route, then delete it once
+        verify(routeRepository, times(1)).findOwnerById(route.getId());
+        verify(routeRepository, never()).findById(anyString());
+        verify(routeRepository, times(1)).deleteById(route.getId());
     }
 
     @Test
@@ -148,15 +170,15 @@ class RouteServiceTest {
         // Given a salesman and a route ID that does not exist
         Salesman salesman = IntegrationTestUtils.createSalesman();
         String routeId = "1";
-        when(routeRepository.findById(routeId)).thenReturn(Optional.empty());
+        when(routeRepository.findOwnerById(routeId)).thenReturn(Optional.empty());
 
         // When deleting a route by ID and connected salesman
         Exception exception = assertThrows(IllegalArgumentException.class, () -> routeService.deleteByIdAndConnectedSalesman(routeId, salesman));
 
         // Then an exception should be thrown with the message "Route not found with ID: 1" and the repository should not delete any route
         assertEquals("Route not found with ID: " + routeId, exception.getMessage());
-        verify(routeRepository, times(1)).findById(routeId);
-        verify(routeRepository, never()).delete(any(Route.class));
+        verify(routeRepository, times(1)).findOwnerById(routeId);
+        verify(routeRepository, never()).deleteById(anyString());
     }
 
     @Test
@@ -230,64 +252,70 @@ class RouteServiceTest {
         salesman.setId(1);
         ClientDTO client = new ClientDTO();
         client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // when setting the client as visited
-        routeService.setClientVisited(client.getId(), route.getId(), salesman);
-
-        // then the client state should be VISITED
-        assertEquals(ClientState.VISITED, route.getClients().getFirst().getState());
+        routeService.setClientVisited(client.getId(), "routeId", salesman);
+
+        // then the client of the route of the salesman is set VISITED with a single update
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(query.capture(), update.capture(), eq(Route.class));
+        assertEquals("routeId", query.getValue().getQueryObject().get("id"));
+        assertEquals(salesman.getId(), query.getValue().getQueryObject().get("salesmanId"));
+        assertEquals(client.getId(), query.getValue().getQueryObject().get("clients.client.id"));
+        assertEquals(new Document("clients.$.state", ClientState.VISITED), update.getValue().getUpdateObject().get("$set"));
+        verify(routeRepository, never()).findById(anyString());
+        verify(routeRepository, never()).save(any(Route.class));
     }
 
     @Test
-    void testSetClientVisitedButClientNotFound() {
-        // given a route, a client, and a state
+    void testSetClientVisitedButRouteNotFound() {
+        // given a salesman and a route ID that does not exist
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        ClientDTO client = new ClientDTO();
-        client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.empty());
 
         // then an exception is thrown when we call the method
-        assertThrows(IllegalArgumentException.class, () -> {
+        assertThrows(ObjectNotFoundException.class, () -> {
             // when setting the client as visited
-            routeService.setClientVisited(2, route.getId(), salesman);
+            routeService.setClientVisited(1, "routeId", salesman);
         });
     }
 
     @Test
-    void testSetClientVisitedButRouteNotFound() {
-        // given a route, a client, and a state
+    void testSetClientVisitedButClientNotInRoute() {
+        // given a route of the salesman without the client, so the update matches nothing
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        ClientDTO client = new ClientDTO();
-        client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 1)));
 
         // then an exception is thrown when we call the method
-        assertThrows(IllegalArgumentException.class, () -> {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
             // when setting the client as visited
-            routeService.setClientVisited(client.getId(), route.getId(), salesman);
+            routeService.setClientVisited(2, "routeId", salesman);
         });
+        assertEquals("Client with ID: 2 is not in the route with ID: routeId", exception.getMessage());
     }
 
     @Test
-    void testSetClientVisitedButClientNotInRoute() {
-        // given a route, a client, and a state
+    void testSetClientVisitedButRouteDoesNotBelongToSalesman() {
+        // given a route of another salesman
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        ClientDTO client = new ClientDTO();
-        client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 2)));
 
         // then an exception is thrown when we call the method
-        assertThrows(IllegalArgumentException.class, () -> {
+        assertThrows(SalesmanBelongingException.class, () -> {
             // when setting the client as visited
-            routeService.setClientVisited(2, route.getId(), salesman);
+            routeService.setClientVisited(1, "routeId", salesman);
         });
     }
 
@@ -298,64 +326,70 @@ class RouteServiceTest {
         salesman.setId(1);
         ClientDTO client = new ClientDTO();
         client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // when setting the client as skipped
-        routeService.setClientSkipped(client.getId(), route.getId(), salesman);
-
-        // then the client state should be SKIPPED
-        assertEquals(ClientState.SKIPPED, route.getClients().getFirst().getState());
+        routeService.setClientSkipped(client.getId(), "routeId", salesman);
+
+        // then the client of the route of the salesman is set SKIPPED with a single update
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(query.capture(), update.capture(), eq(Route.class));
+        assertEquals("routeId", query.getValue().getQueryObject().get("id"));
+        assertEquals(salesman.getId(), query.getValue().getQueryObject().get("salesmanId"));
+        assertEquals(client.getId(), query.getValue().getQueryObject().get("clients.client.id"));
+        assertEquals(new Document("clients.$.state", ClientState.SKIPPED), update.getValue().getUpdateObject().get("$set"));
+        verify(routeRepository, never()).findById(anyString());
+        verify(routeRepository, never()).save(any(Route.class));
     }
 
     @Test
-    void testSetClientSkippedButClientNotFound() {
-        // given a route, a client, and a state
+    void testSetClientSkippedButRouteNotFound() {
+        // given a salesman and a route ID that does not exist
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        ClientDTO client = new ClientDTO();
-        client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.empty());
 
         // then an exception is thrown when we call the method
-        assertThrows(IllegalArgumentException.class, () -> {
+        assertThrows(ObjectNotFoundException.class, () -> {
             // when setting the client as skipped
-            routeService.setClientSkipped(2, route.getId(), salesman);
+            routeService.setClientSkipped(1, "routeId", salesman);
         });
     }
 
     @Test
-    void testSetClientSkippedButRouteNotFound() {
-        // given a route, a client, and a state
+    void testSetClientSkippedButClientNotInRoute() {
+        // given a route of the salesman without the client, so the update matches nothing
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        ClientDTO client = new ClientDTO();
-        client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 1)));
 
         // then an exception is thrown when we call the method
-        assertThrows(IllegalArgumentException.class, () -> {
+        Exception exception = assertThrows(IllegalArgumentException.class, () -> {
             // when setting the client as skipped
-            routeService.setClientSkipped(client.getId(), route.getId(), salesman);
+            routeService.setClientSkipped(2, "routeId", salesman);
         });
+        assertEquals("Client with ID: 2 is not in the route with ID: routeId", exception.getMessage());
     }
 
     @Test
-    void testSetClientSkippedButClientNotInRoute() {
-        // given a route, a client, and a state
+    void testSetClientSkippedButRouteDoesNotBelongToSalesman() {
+        // given a route of another salesman
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        ClientDTO client = new ClientDTO();
-        client.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of(client));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 2)));
 
         // then an exception is thrown when we call the method
-        assertThrows(IllegalArgumentException.class, () -> {
+        assertThrows(SalesmanBelongingException.class, () -> {
             // when setting the client as skipped
-            routeService.setClientSkipped(2, route.getId(), salesman);
+            routeService.setClientSkipped(1, "routeId", salesman);
         });
     }
 
@@ -365,19 +399,72 @@ class RouteServiceTest {
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
         GeoCord newPosition = new GeoCord(44.0, 2.0);
-        Route route = IntegrationTestUtils.createRoute(salesman, List.of());
-        route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
-        when(routeRepository.save(any(Route.class))).thenReturn(route);
-        when(mongoClientRepository.findByLocationNear(any(GeoJsonPoint.class), any(Distance.class))).thenReturn(List.of());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // When updating the salesman's position
-        routeService.updateSalesmanPosition(route.getId(), salesman, newPosition);
+        routeService.updateSalesmanPosition("routeId", salesman, newPosition, null);
+
+        // Then the position is set in the route of the salesman, without reading or saving the whole route
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(query.capture(), update.capture(), eq(Route.class));
+        assertEquals("routeId", query.getValue().getQueryObject().get("id"));
+        assertEquals(salesman.getId(), query.getValue().getQueryObject().get("salesmanId"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(new GeoJsonPoint(2.0, 44.0), set.get(RouteService.SALESMAN_CURRENT_POSITION));
+        assertNotNull(set.get(RouteService.SALESMAN_CURRENT_POSITION_TIMESTAMP));
+        verify(routeRepository, never()).findById(anyString());
+        verify(routeRepository, never()).save(any(Route.class));
+
+        // And it's added to the trace of the route
+        ArgumentCaptor<List<SalesmanPosition>> positions = ArgumentCaptor.captor();
+        verify(salesmanPositionStore).insertAll(positions.capture());
+        assertEquals(1, positions.getValue().size());
+        assertEquals(new SalesmanPosition.Meta("routeId", 1), positions.getValue().get(0).getMeta());
+        assertEquals(newPosition, positions.getValue().get(0).toGeoCord());
+    }
+
+    @Test
+    void testUpdateSalesmanPositionRecordedBeforeTheCurrentOne() {
+        // Given a route of the salesman which has a position recorded after the new one, so the update matches nothing
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Instant recordedAt = Instant.now().minusSeconds(60);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 1)));
+
+        // When uploading the old position
+        boolean latest = routeService.updateSalesmanPosition("routeId", salesman, new GeoCord(44.0, 2.0), recordedAt);
+
+        // Then the update only matches an older position, and the position only goes to the trace
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(Route.class));
+        assertTrue(query.getValue().getQueryObject().containsKey("$or"));
+        assertFalse(latest);
+        ArgumentCaptor<List<SalesmanPosition>> positions = ArgumentCaptor.captor();
+        verify(salesmanPositionStore).insertAll(positions.capture());
+        assertEquals(recordedAt, positions.getValue().get(0).getTimestamp());
+    }
+
+    @Test
+    void testUpdateSalesmanPositionFromTheFuture() {
+        // Given a device whose clock is ahead
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Instant future = Instant.now().plusSeconds(3600);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        // When it sends a position
+        routeService.updateSalesmanPosition("routeId", salesman, new GeoCord(44.0, 2.0), future);
 
-        // Then the route should be updated with the new position
-        assertEquals(2, route.getSalesmanPositions().getCoordinates().size());
-        assertEquals(new GeoJsonPoint(2.0, 44.0), route.getSalesmanPositions().getCoordinates().get(1));
-        verify(routeRepository, times(1)).save(route);
+        // Then the position is stamped with the server clock, so it doesn't block the next ones
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).updateFirst(any(Query.class), update.capture(), eq(Route.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertTrue(((Instant) set.get(RouteService.SALESMAN_CURRENT_POSITION_TIMESTAMP)).isBefore(future));
     }
 
     @Test
@@ -387,16 +474,133 @@ class RouteServiceTest {
         salesman.setId(1);
         GeoCord newPosition = new GeoCord(44.0, 2.0);
         String routeId = "invalidRouteId";
-        when(routeRepository.findById(routeId)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(routeId)).thenReturn(Optional.empty());
 
         // When updating the salesman's position
         Exception exception = assertThrows(ObjectNotFoundException.class, () -> {
-            routeService.updateSalesmanPosition(routeId, salesman, newPosition);
+            routeService.updateSalesmanPosition(routeId, salesman, newPosition, null);
         });
 
         // Then an exception should be thrown with the message "Route not found with ID: invalidRouteId"
         assertEquals("Route not found with ID: " + routeId, exception.getMessage());
         verify(routeRepository, never()).save(any(Route.class));
+        verify(salesmanPositionStore, never()).insertAll(anyList());
+    }
+
+    @Test
+    void testUpdateSalesmanPositionOfAnotherSalesman() {
+        // Given a route of another salesman, so the update matches nothing
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Salesman anotherSalesman = IntegrationTestUtils.createSalesman();
+        anotherSalesman.setId(2);
+        Route route = IntegrationTestUtils.createRoute(anotherSalesman, List.of());
+        route.setId("routeId");
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
+
+        assertThrows(SalesmanBelongingException.class,
+                () -> routeService.updateSalesmanPosition(route.getId(), salesman, new GeoCord(44.0, 2.0), null));
+    }
+
+    @Test
+    void testUpdateSalesmanPositions() {
+        // Given positions recorded offline, received out of order
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Instant now = Instant.now();
+        List<SalesmanPositionRequestModel> positions = List.of(
+                new SalesmanPositionRequestModel(new GeoCord(44.2, 2.2), now),
+                new SalesmanPositionRequestModel(new GeoCord(44.0, 2.0), now.minusSeconds(60)),
+                new SalesmanPositionRequestModel(new GeoCord(44.1, 2.1), now.minusSeconds(30)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        // When uploading them
+        GeoCord latestPosition = routeService.updateSalesmanPositions("routeId", salesman, positions);
+
+        // Then the route only keeps the latest one
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(any(Query.class), update.capture(), eq(Route.class));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(new GeoJsonPoint(2.2, 44.2), set.get(RouteService.SALESMAN_CURRENT_POSITION));
+        assertEquals(new GeoCord(44.2, 2.2), latestPosition);
+        verify(routeRepository, never()).save(any(Route.class));
+
+        // And all of them are added to the trace with their timestamp, in a single insert
+        ArgumentCaptor<List<SalesmanPosition>> trace = ArgumentCaptor.captor();
+        verify(salesmanPositionStore, times(1)).insertAll(trace.capture());
+        assertEquals(List.of(now, now.minusSeconds(60), now.minusSeconds(30)),
+                trace.getValue().stream().map(SalesmanPosition::getTimestamp).toList());
+    }
+
+    @Test
+    void testUpdateSalesmanPositionsOlderThanTheRoute() {
+        // Given a route of the salesman which has a position recorded after the whole batch, so the update matches nothing
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Instant recordedAt = Instant.now().minusSeconds(3600);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 1)));
+
+        // When the batch is uploaded late
+        GeoCord latestPosition = routeService.updateSalesmanPositions("routeId", salesman,
+                List.of(new SalesmanPositionRequestModel(new GeoCord(44.0, 2.0), recordedAt)));
+
+        // Then none of its positions is the latest one, but they are all in the trace
+        assertNull(latestPosition);
+        verify(salesmanPositionStore).insertAll(anyList());
+    }
+
+    @Test
+    void testGetSalesmanCurrentPosition() {
+        // Given a route of the salesman with a position
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Route route = IntegrationTestUtils.createRoute(salesman, List.of());
+        route.setSalesmanCurrentPosition(new GeoJsonPoint(2.0, 44.0));
+        when(mongoTemplate.findOne(any(Query.class), eq(Route.class))).thenReturn(route);
+
+        // When getting its position, then it's read without the clients of the route
+        assertEquals(new GeoCord(44.0, 2.0), routeService.getSalesmanCurrentPosition("routeId", salesman));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).findOne(query.capture(), eq(Route.class));
+        assertEquals(Set.of("salesmanId", RouteService.SALESMAN_CURRENT_POSITION), query.getValue().getFieldsObject().keySet());
+        verify(routeRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void testGetSalesmanTrace() {
+        // Given a route of the salesman with a trace
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Instant from = Instant.now().minusSeconds(3600);
+        List<SalesmanPosition> trace = List.of(SalesmanPosition.of("routeId", 1, new GeoCord(44.0, 2.0), from));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 1)));
+        when(salesmanPositionStore.findTrace("routeId", from, null, 100)).thenReturn(trace);
+
+        // When getting the trace from a date, then the positions come from the store without reading the whole route
+        assertEquals(trace, routeService.getSalesmanTrace("routeId", salesman, from, null, 100));
+        verify(routeRepository, never()).findById(anyString());
+    }
+
+    @Test
+    void testGetSalesmanTraceOfAnotherSalesman() {
+        // Given a route of another salesman
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Salesman anotherSalesman = IntegrationTestUtils.createSalesman();
+        anotherSalesman.setId(2);
+        Route route = IntegrationTestUtils.createRoute(anotherSalesman, List.of());
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
+
+        assertThrows(SalesmanBelongingException.class,
+                () -> routeService.getSalesmanTrace(route.getId(), salesman, null, null, 100));
+        verify(salesmanPositionStore, never()).findTrace(anyString(), any(), any(), anyInt());
     }
 
     @Test
@@ -407,21 +611,31 @@ class RouteServiceTest {
         Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
         route.setId("routeId");
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        double distanceInKm = 1.0;
+        Distance distance = new Distance(1.0, Metrics.KILOMETERS);
         MongoClient client = new MongoClient();
         client.setCategory(new ClientCategory("PROSPECT"));
         client.setId(1);
+        client.setSalesmanId(salesman.getId());
         client.setLocation(point);
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
-        when(mongoClientRepository.findByLocationNear(point, new Distance(distanceInKm))).thenReturn(List.of(client));
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
+        when(mongoTemplate.geoNear(any(NearQuery.class), eq(MongoClient.class)))
+                .thenReturn(new GeoResults<>(List.of(new GeoResult<>(client, new Distance(0.0, Metrics.KILOMETERS)))));
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(distanceInKm));
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), distance);
 
         // Then the result should contain the expected clients
         assertNotNull(nearbyClients);
-        assertEquals(1, nearbyClients.getTotalElements());
-        assertEquals(client, nearbyClients.getContent().get(0));
+        assertEquals(1, nearbyClients.getContent().size());
+        assertEquals(client, nearbyClients.getContent().get(0).getContent());
+        // And the prospects of the salesman are filtered by MongoDB
+        ArgumentCaptor<NearQuery> nearQuery = ArgumentCaptor.forClass(NearQuery.class);
+        verify(mongoTemplate, times(1)).geoNear(nearQuery.capture(), eq(MongoClient.class));
+        Document filter = nearQuery.getValue().toDocument();
+        assertEquals(distance.getNormalizedValue(), nearQuery.getValue().getMaxDistance().getNormalizedValue());
+        Document criteria = (Document) filter.get("query");
+        assertEquals(salesman.getId(), criteria.get("salesmanId"));
+        assertEquals("PROSPECT", criteria.get("category.name"));
     }
 
     @Test
@@ -432,16 +646,15 @@ class RouteServiceTest {
         Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
         route.setId("routeId");
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        double distanceInKm = 1.0;
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
-        when(mongoClientRepository.findByLocationNear(point, new Distance(distanceInKm))).thenReturn(Collections.emptyList());
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
+        when(mongoTemplate.geoNear(any(NearQuery.class), eq(MongoClient.class))).thenReturn(new GeoResults<>(List.of()));
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(distanceInKm));
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), new Distance(1.0, Metrics.KILOMETERS));
 
         // Then the result should be an empty list
         assertNotNull(nearbyClients);
-        assertTrue(nearbyClients.isEmpty());
+        assertTrue(nearbyClients.getContent().isEmpty());
     }
 
     @Test
@@ -452,47 +665,88 @@ class RouteServiceTest {
         Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
         route.setId("routeId");
         GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
-        double distanceInKm = 1.0;
-        MongoClient client = new MongoClient();
-        client.setCategory(new ClientCategory("PROSPECT"));
-        client.setId(1);
-        client.setLocation(point);
         MongoClient clientToAvoid = new MongoClient();
         clientToAvoid.setCategory(new ClientCategory("PROSPECT"));
         clientToAvoid.setId(2);
         clientToAvoid.setLocation(new GeoJsonPoint(2.1, 44.1));
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
-        when(mongoClientRepository.findByLocationNear(point, new Distance(distanceInKm))).thenReturn(List.of(client));
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
+        when(mongoTemplate.geoNear(any(NearQuery.class), eq(MongoClient.class))).thenReturn(new GeoResults<>(List.of()));
 
         // When finding nearby clients
-        Page<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(clientToAvoid), new Distance(distanceInKm));
+        routeService.findNearbyClients(route.getId(), salesman, point, List.of(clientToAvoid), new Distance(1.0, Metrics.KILOMETERS));
 
-        // Then the result should contain the expected clients
-        assertNotNull(nearbyClients);
-        assertEquals(1, nearbyClients.getTotalElements());
-        assertEquals(client, nearbyClients.getContent().get(0));
+        // Then the clients to avoid are excluded by MongoDB
+        ArgumentCaptor<NearQuery> nearQuery = ArgumentCaptor.forClass(NearQuery.class);
+        verify(mongoTemplate, times(1)).geoNear(nearQuery.capture(), eq(MongoClient.class));
+        Document criteria = (Document) nearQuery.getValue().toDocument().get("query");
+        assertEquals(new Document("$nin", List.of(2)), criteria.get("id"));
     }
 
     @Test
-    void testStartRoute() {
-        // Given a salesman, a route, and a RouteStartRequestModel
+    void testFindNearbyClientsFromIndex() {
+        // Given a salesman whose prospects are in the index
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
         Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
         route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        GeoJsonPoint point = new GeoJsonPoint(2.0, 44.0);
+        Distance distance = new Distance(1.0, Metrics.KILOMETERS);
+        GeoResults<MongoClient> indexedClients = new GeoResults<>(List.of(new GeoResult<>(new MongoClient(1, 44.0, 2.0), new Distance(0.0, Metrics.KILOMETERS))));
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
+        when(prospectIndex.findNearby(eq(salesman.getId()), eq(point), anyCollection(), eq(distance), anyInt())).thenReturn(indexedClients);
+
+        // When finding nearby clients
+        GeoResults<MongoClient> nearbyClients = routeService.findNearbyClients(route.getId(), salesman, point, List.of(), distance);
+
+        // Then the index answers instead of MongoDB
+        assertSame(indexedClients, nearbyClients);
+        verify(mongoTemplate, never()).geoNear(any(NearQuery.class), eq(MongoClient.class));
+    }
+
+    @Test
+    void testFindNearbyClientsRouteDoesNotBelongToSalesman() {
+        // Given a route of another salesman
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
+        route.setId("routeId");
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), 2)));
+
+        // When finding nearby clients, Then an exception is thrown before querying the clients
+        assertThrows(SalesmanBelongingException.class,
+                () -> routeService.findNearbyClients(route.getId(), salesman, new GeoJsonPoint(2.0, 44.0), List.of(), new Distance(1.0, Metrics.KILOMETERS)));
+        verify(mongoTemplate, never()).geoNear(any(NearQuery.class), eq(MongoClient.class));
+    }
+
+    @Test
+    void testStartRoute() {
+        // Given a salesman, a route, and a RouteStartRequestModel
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         GeoCord currentPosition = new GeoCord(45.0, 44.0);
 
         // When starting the route
-        routeService.startRoute(route.getId(), currentPosition, salesman);
-
-        // Then the route state should be IN_PROGRESS and the start date should be set
-        assertEquals(RouteState.IN_PROGRESS, route.getState());
-        assertNotNull(route.getStartDate());
-        assertEquals(currentPosition.latitude(), route.getSalesmanPositions().getCoordinates().getLast().getY());
-        assertEquals(currentPosition.longitude(), route.getSalesmanPositions().getCoordinates().getLast().getX());
-        verify(routeRepository, times(1)).save(route);
+        routeService.startRoute("routeId", currentPosition, salesman);
+
+        // Then the route of the salesman is set IN_PROGRESS with its start date and position, if it isn't started yet
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(query.capture(), update.capture(), eq(Route.class));
+        assertEquals("routeId", query.getValue().getQueryObject().get("id"));
+        assertEquals(salesman.getId(), query.getValue().getQueryObject().get("salesmanId"));
+        assertEquals(new Document("$in", Arrays.asList(RouteState.NOT_STARTED, null)), query.getValue().getQueryObject().get("state"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(RouteState.IN_PROGRESS, set.get("state"));
+        assertNotNull(set.get("startDate"));
+        assertEquals(new GeoJsonPoint(44.0, 45.0), set.get(RouteService.SALESMAN_CURRENT_POSITION));
+        verify(salesmanPositionStore, times(1)).insertAll(anyList());
+
+        // And the route is neither read nor saved
+        verify(routeRepository, never()).findById(anyString());
+        verify(routeRepository, never()).save(any(Route.class));
     }
 
     @Test
@@ -501,7 +755,9 @@ class RouteServiceTest {
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
         String routeId = "nonExistingRouteId";
-        when(routeRepository.findById(routeId)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(routeId)).thenReturn(Optional.empty());
 
         GeoCord currentPosition = new GeoCord(45.0, 44.0);
 
@@ -512,6 +768,25 @@ class RouteServiceTest {
 
         // Then an exception should be thrown with the message "Route not found with ID: nonExistingRouteId"
         assertEquals("Route not found with ID: " + routeId, exception.getMessage());
+        verify(salesmanPositionStore, never()).insertAll(anyList());
+    }
+
+    @Test
+    void testStartRouteAlreadyStarted() {
+        // Given a route of the salesman which isn't in a startable state, so the update matches nothing
+        Salesman salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById("routeId")).thenReturn(Optional.of(new RouteOwner("routeId", 1)));
+
+        // When starting the route
+        Exception exception = assertThrows(RouteStateException.class,
+                () -> routeService.startRoute("routeId", new GeoCord(45.0, 44.0), salesman));
+
+        // Then the route can't be started again
+        assertEquals(String.format(RouteService.ROUTE_STATE_NOT_ALLOWED, "routeId", RouteState.IN_PROGRESS), exception.getMessage());
+        verify(salesmanPositionStore, never()).insertAll(anyList());
     }
 
     @Test
@@ -519,16 +794,20 @@ class RouteServiceTest {
         // Given a salesman and a route
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
-        route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // When stopping the route
-        routeService.stopRoute(route.getId(), salesman);
-
-        // Then the route state should be STOPPED
-        assertEquals(RouteState.STOPPED, route.getState());
-        verify(routeRepository, times(1)).save(route);
+        routeService.stopRoute("routeId", salesman);
+
+        // Then the route state should be STOPPED, unless it's already stopped or finished
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(query.capture(), update.capture(), eq(Route.class));
+        assertEquals(new Document("$in", Arrays.asList(RouteState.NOT_STARTED, null, RouteState.IN_PROGRESS, RouteState.PAUSED)),
+                query.getValue().getQueryObject().get("state"));
+        assertEquals(new Document("state", RouteState.STOPPED), update.getValue().getUpdateObject().get("$set"));
+        verify(routeRepository, never()).save(any(Route.class));
     }
 
     @Test
@@ -537,7 +816,9 @@ class RouteServiceTest {
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
         String routeId = "nonExistingRouteId";
-        when(routeRepository.findById(routeId)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(routeId)).thenReturn(Optional.empty());
 
         // When stopping the route
         Exception exception = assertThrows(ObjectNotFoundException.class, () -> {
@@ -557,7 +838,9 @@ class RouteServiceTest {
         salesman2.setId(2);
         Route route = IntegrationTestUtils.createRoute(salesman1, Collections.emptyList());
         route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
 
         // When stopping the route
         Exception exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -573,16 +856,19 @@ class RouteServiceTest {
         // Given a salesman and a route
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
-        route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         // When pausing the route
-        routeService.pauseRoute(route.getId(), salesman);
-
-        // Then the route state should be PAUSED
-        assertEquals(RouteState.PAUSED, route.getState());
-        verify(routeRepository, times(1)).save(route);
+        routeService.pauseRoute("routeId", salesman);
+
+        // Then the route state should be PAUSED, if it was in progress
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(query.capture(), update.capture(), eq(Route.class));
+        assertEquals(new Document("$in", List.of(RouteState.IN_PROGRESS)), query.getValue().getQueryObject().get("state"));
+        assertEquals(new Document("state", RouteState.PAUSED), update.getValue().getUpdateObject().get("$set"));
+        verify(routeRepository, never()).save(any(Route.class));
     }
 
     @Test
@@ -591,7 +877,9 @@ class RouteServiceTest {
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
         String routeId = "nonExistingRouteId";
-        when(routeRepository.findById(routeId)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(routeId)).thenReturn(Optional.empty());
 
         // When pausing the route
         Exception exception = assertThrows(ObjectNotFoundException.class, () -> {
@@ -611,7 +899,9 @@ class RouteServiceTest {
         salesman2.setId(2);
         Route route = IntegrationTestUtils.createRoute(salesman1, Collections.emptyList());
         route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
 
         // When pausing the route
         Exception exception = assertThrows(IllegalArgumentException.class, () -> {
@@ -627,18 +917,23 @@ class RouteServiceTest {
         // Given a salesman and a route
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
-        Route route = IntegrationTestUtils.createRoute(salesman, Collections.emptyList());
-        route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
 
         GeoCord currentPosition = new GeoCord(45.0, 44.0);
 
         // When pausing the route
-        routeService.resumeRoute(route.getId(), currentPosition, salesman);
-
-        // Then the route state should be IN_PROGRESS
-        assertEquals(RouteState.IN_PROGRESS, route.getState());
-        verify(routeRepository, times(1)).save(route);
+        routeService.resumeRoute("routeId", currentPosition, salesman);
+
+        // Then the route state should be IN_PROGRESS, if it was paused, without changing its start date
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(1)).updateFirst(query.capture(), update.capture(), eq(Route.class));
+        assertEquals(new Document("$in", List.of(RouteState.PAUSED)), query.getValue().getQueryObject().get("state"));
+        Document set = (Document) update.getValue().getUpdateObject().get("$set");
+        assertEquals(RouteState.IN_PROGRESS, set.get("state"));
+        assertFalse(set.containsKey("startDate"));
+        verify(routeRepository, never()).save(any(Route.class));
     }
 
     @Test
@@ -647,7 +942,9 @@ class RouteServiceTest {
         Salesman salesman = IntegrationTestUtils.createSalesman();
         salesman.setId(1);
         String routeId = "nonExistingRouteId";
-        when(routeRepository.findById(routeId)).thenReturn(Optional.empty());
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(routeId)).thenReturn(Optional.empty());
 
         GeoCord currentPosition = new GeoCord(45.0, 44.0);
 
@@ -669,7 +966,9 @@ class RouteServiceTest {
         salesman2.setId(2);
         Route route = IntegrationTestUtils.createRoute(salesman1, Collections.emptyList());
         route.setId("routeId");
-        when(routeRepository.findById(route.getId())).thenReturn(Optional.of(route));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Route.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+        when(routeRepository.findOwnerById(route.getId())).thenReturn(Optional.of(new RouteOwner(route.getId(), route.getSalesmanId())));
 
         GeoCord currentPosition = new GeoCord(45.0, 44.0);
 
@@ -4,11 +4,8 @@ import fr.iut.pathpilotapi.itineraries.dto.ClientDTO;
 import fr.iut.pathpilotapi.routes.dto.ClientState;
 import fr.iut.pathpilotapi.routes.dto.RouteClient;
 import org.junit.jupiter.api.Test;
-import org.springframework.data.geo.Point;
-import org.springframework.data.mongodb.core.geo.GeoJsonLineString;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedList;
 
@@ -30,9 +27,7 @@ class RouteTest {
         route1.setSalesman_home(new GeoJsonPoint(0.0, 0.0));
         route1.setSalesmanId(1);
         route1.setClients(new LinkedList<>());
-        ArrayList<Point> points = new ArrayList<>();
-        points.add(new Point(0.0, 0.0));
-        route1.setSalesmanPositions(new GeoJsonLineString(points));
+        route1.setSalesmanCurrentPosition(new GeoJsonPoint(0.0, 0.0));
         route1.setStartDate(new Date());
 
         // Test if a route is equals to herself but with basic data
@@ -47,7 +42,7 @@ class RouteTest {
         route2.setSalesman_home(route1.getSalesman_home());
         route2.setSalesmanId(route1.getSalesmanId());
         route2.setClients(route1.getClients());
-        route2.setSalesmanPositions(route1.getSalesmanPositions());
+        route2.setSalesmanCurrentPosition(route1.getSalesmanCurrentPosition());
         route2.setStartDate(route1.getStartDate());
 
         // Test if two route with the same data are equal but isn't the same instance
@@ -0,0 +1,284 @@
+package fr.iut.pathpilotapi.routes.nearby;
+
+import fr.iut.pathpilotapi.GeoCord;
+import fr.iut.pathpilotapi.clients.dto.ClientResponseModel;
+import fr.iut.pathpilotapi.clients.dto.ClientResponseModelAssembler;
+import fr.iut.pathpilotapi.clients.dto.ClientView;
+import fr.iut.pathpilotapi.clients.entity.MongoClient;
+import fr.iut.pathpilotapi.clients.service.ClientService;
+import fr.iut.pathpilotapi.exceptions.SalesmanBelongingException;
+import fr.iut.pathpilotapi.routes.RouteService;
+import fr.iut.pathpilotapi.routes.dto.SalesmanPositionRequestModel;
+import fr.iut.pathpilotapi.salesman.Salesman;
+import fr.iut.pathpilotapi.test.IntegrationTestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class to test the stream of the nearby prospects.
+ */
+class NearbyProspectServiceTest {
+
+    private static final String ROUTE_ID = "routeId";
+
+    private static final GeoCord POSITION = new GeoCord(44.0, 2.0);
+
+    @Mock
+    private RouteService routeService;
+
+    @Mock
+    private ClientService clientService;
+
+    @Mock
+    private ClientResponseModelAssembler clientResponseModelAssembler;
+
+    private NearbyProspectService nearbyProspectService;
+
+    private Salesman salesman;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        nearbyProspectService = newService(Duration.ofHours(1));
+        salesman = IntegrationTestUtils.createSalesman();
+        salesman.setId(1);
+        when(clientService.findAllViewsByIdAndConnectedSalesman(anyList(), eq(salesman))).thenAnswer(invocation ->
+                invocation.<List<Integer>>getArgument(0).stream()
+                        .map(id -> new ClientView(id, 1, "Company", 44.0, 2.0, null, null, null, null, null))
+                        .toList());
+        when(clientResponseModelAssembler.toModel(any(ClientView.class))).thenReturn(new ClientResponseModel());
+        when(routeService.updateSalesmanPosition(eq(ROUTE_ID), eq(salesman), any(GeoCord.class), any())).thenReturn(true);
+    }
+
+    /**
+     * The service creates mocked streams, so the events sent can be read.
+     */
+    private NearbyProspectService newService(Duration idleTimeToLive) {
+        NearbyProspectService service = spy(new NearbyProspectService(routeService, clientService, clientResponseModelAssembler,
+                Duration.ofMinutes(30), idleTimeToLive));
+        doAnswer(invocation -> mock(SseEmitter.class)).when(service).createEmitter();
+        return service;
+    }
+
+    /**
+     * @return the names of the events sent to the stream, in order
+     */
+    private static List<String> eventNames(SseEmitter emitter) throws IOException {
+        ArgumentCaptor<SseEmitter.SseEventBuilder> events = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+        verify(emitter, atLeast(0)).send(events.capture());
+        return events.getAllValues().stream()
+                // The first part of an event is "event:<name>\ndata:"
+                .map(event -> event.build().iterator().next().getData().toString())
+                .map(text -> text.substring("event:".length(), text.indexOf('\n')))
+                .toList();
+    }
+
+    private void givenNearbyProspects(Integer... ids) {
+        List<GeoResult<MongoClient>> results = Arrays.stream(ids)
+                .map(id -> new GeoResult<>(new MongoClient(id, 44.0, 2.0), new Distance(0, Metrics.KILOMETERS)))
+                .toList();
+        when(routeService.findNearbyClients(eq(ROUTE_ID), eq(salesman), any(GeoJsonPoint.class), anyList(), any(Distance.class)))
+                .thenReturn(new GeoResults<>(results));
+    }
+
+    @Test
+    void testPositionOfRouteNotFollowed() {
+        // When a position is added to a route without stream
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+
+        // Then the position is saved, but the nearby prospects aren't searched
+        verify(routeService).updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+        verify(routeService, never()).findNearbyClients(anyString(), any(), any(), anyList(), any());
+    }
+
+    @Test
+    void testOnlyTheEnteredProspectsAreRead() {
+        // Given a followed route
+        nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        assertTrue(nearbyProspectService.isFollowed(ROUTE_ID));
+
+        // When the salesman gets near the prospects 1 and 2, then near the prospects 2 and 3
+        givenNearbyProspects(1, 2);
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+        givenNearbyProspects(2, 3);
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+
+        // Then the prospect 2 is only read once
+        verify(clientService).findAllViewsByIdAndConnectedSalesman(List.of(1, 2), salesman);
+        verify(clientService).findAllViewsByIdAndConnectedSalesman(List.of(3), salesman);
+        verifyNoMoreInteractions(clientService);
+    }
+
+    @Test
+    void testSamePositionSendsNothing() {
+        nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        givenNearbyProspects(1);
+
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+
+        verify(clientService, times(1)).findAllViewsByIdAndConnectedSalesman(anyList(), eq(salesman));
+    }
+
+    @Test
+    void testSnapshotIsSentWithoutProspects() throws IOException {
+        // When following a route without nearby prospects
+        SseEmitter emitter = nearbyProspectService.subscribe(ROUTE_ID, salesman);
+
+        // Then an empty snapshot is sent, so the device resets its set
+        assertEquals(List.of("snapshot"), eventNames(emitter));
+        verifyNoInteractions(clientService);
+    }
+
+    @Test
+    void testFirstSnapshotHoldsTheProspectsNearTheRoutePosition() throws IOException {
+        // Given a route whose salesman is already near the prospects 1 and 2
+        when(routeService.getSalesmanCurrentPosition(ROUTE_ID, salesman)).thenReturn(POSITION);
+        givenNearbyProspects(1, 2);
+
+        // When following it for the first time
+        SseEmitter emitter = nearbyProspectService.subscribe(ROUTE_ID, salesman);
+
+        // Then the snapshot holds them, and they aren't sent again with the next position
+        assertEquals(List.of("snapshot"), eventNames(emitter));
+        verify(clientService).findAllViewsByIdAndConnectedSalesman(List.of(1, 2), salesman);
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+        assertEquals(List.of("snapshot"), eventNames(emitter));
+    }
+
+    @Test
+    void testPositionWhileDisconnectedIsInTheSnapshot() throws IOException {
+        // Given a followed route, whose device disconnects
+        SseEmitter firstEmitter = nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        nearbyProspectService.unsubscribe(ROUTE_ID, firstEmitter);
+        assertTrue(nearbyProspectService.isFollowed(ROUTE_ID));
+
+        // When a position near the prospects 1 and 2 is added while it's disconnected
+        givenNearbyProspects(1, 2);
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+
+        // Then nothing is sent, and the prospects aren't read
+        assertEquals(List.of("snapshot"), eventNames(firstEmitter));
+        verifyNoInteractions(clientService);
+
+        // When the device reconnects, Then the snapshot holds the prospects of the last position
+        SseEmitter secondEmitter = nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        assertEquals(List.of("snapshot"), eventNames(secondEmitter));
+        verify(clientService).findAllViewsByIdAndConnectedSalesman(List.of(1, 2), salesman);
+
+        // And the next positions only send the changes since the snapshot
+        givenNearbyProspects(2, 3);
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+        assertEquals(List.of("snapshot", "enter", "leave"), eventNames(secondEmitter));
+        verify(clientService).findAllViewsByIdAndConnectedSalesman(List.of(3), salesman);
+    }
+
+    @Test
+    void testIdleRouteIsForgotten() {
+        // Given a route whose device disconnected, with routes forgotten as soon as they are idle
+        nearbyProspectService = newService(Duration.ZERO);
+        SseEmitter emitter = nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        nearbyProspectService.unsubscribe(ROUTE_ID, emitter);
+
+        // When a position is added
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, null);
+
+        // Then the route isn't followed anymore
+        assertFalse(nearbyProspectService.isFollowed(ROUTE_ID));
+        verify(routeService, never()).findNearbyClients(anyString(), any(), any(), anyList(), any());
+    }
+
+    @Test
+    void testOfflineBatchIsSentToTheStreams() throws IOException {
+        // Given a followed route
+        SseEmitter emitter = nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        List<SalesmanPositionRequestModel> positions = List.of(new SalesmanPositionRequestModel(POSITION, Instant.now()));
+        when(routeService.updateSalesmanPositions(ROUTE_ID, salesman, positions)).thenReturn(POSITION);
+        givenNearbyProspects(1);
+
+        // When positions recorded offline are uploaded
+        assertEquals(POSITION, nearbyProspectService.updateSalesmanPositions(ROUTE_ID, salesman, positions));
+
+        // Then the prospects near the latest one are sent to the stream
+        assertEquals(List.of("snapshot", "enter"), eventNames(emitter));
+    }
+
+    @Test
+    void testOfflineBatchOlderThanTheRouteSendsNothing() {
+        nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        List<SalesmanPositionRequestModel> positions = List.of(new SalesmanPositionRequestModel(POSITION, Instant.now()));
+        when(routeService.updateSalesmanPositions(ROUTE_ID, salesman, positions)).thenReturn(null);
+
+        assertNull(nearbyProspectService.updateSalesmanPositions(ROUTE_ID, salesman, positions));
+
+        verify(routeService, never()).findNearbyClients(anyString(), any(), any(), anyList(), any());
+    }
+
+    @Test
+    void testOlderPositionSendsNothing() {
+        // Given a followed route, which already has a position recorded after the new one
+        nearbyProspectService.subscribe(ROUTE_ID, salesman);
+        Instant recordedAt = Instant.now().minusSeconds(60);
+        when(routeService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, recordedAt)).thenReturn(false);
+
+        // When the old position is uploaded
+        nearbyProspectService.updateSalesmanPosition(ROUTE_ID, salesman, POSITION, recordedAt);
+
+        // Then the nearby prospects of the newer position stay
+        verify(routeService, never()).findNearbyClients(anyString(), any(), any(), anyList(), any());
+    }
+
+    @Test
+    void testFollowRouteOfAnotherSalesman() {
+        doThrow(new SalesmanBelongingException("Route with ID: " + ROUTE_ID + " does not belong to the connected salesman."))
+                .when(routeService).checkRouteBelongsToSalesman(ROUTE_ID, salesman);
+
+        assertThrows(SalesmanBelongingException.class, () -> nearbyProspectService.subscribe(ROUTE_ID, salesman));
+        assertFalse(nearbyProspectService.isFollowed(ROUTE_ID));
+    }
+
+    @Test
+    void testRouteCompletedWhileFollowingIt() {
+        // Given a route stopped while a device starts following it
+        when(routeService.getSalesmanCurrentPosition(ROUTE_ID, salesman)).thenAnswer(invocation -> {
+            nearbyProspectService.complete(ROUTE_ID);
+            return POSITION;
+        });
+        givenNearbyProspects();
+
+        // When the device follows it
+        SseEmitter emitter = nearbyProspectService.subscribe(ROUTE_ID, salesman);
+
+        // Then its stream is closed at once instead of waiting for its timeout
+        verify(emitter).complete();
+        assertFalse(nearbyProspectService.isFollowed(ROUTE_ID));
+    }
+
+    @Test
+    void testCompleteRoute() {
+        nearbyProspectService.subscribe(ROUTE_ID, salesman);
+
+        nearbyProspectService.complete(ROUTE_ID);
+
+        assertFalse(nearbyProspectService.isFollowed(ROUTE_ID));
+    }
+}
@@ -0,0 +1,48 @@
+package fr.iut.pathpilotapi.routes.nearby;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the changes of the nearby prospects.
+ */
+class NearbyProspectsTest {
+
+    @Test
+    void testFirstUpdateEntersAllProspects() {
+        NearbyProspects prospects = new NearbyProspects();
+
+        NearbyProspects.Change change = prospects.update(Set.of(1));
+
+        assertEquals(List.of(1), change.entered());
+        assertTrue(change.left().isEmpty());
+        assertEquals(List.of(1), prospects.getProspectIds());
+    }
+
+    @Test
+    void testUpdateOnlyReturnsTheChanges() {
+        // Given the prospects 1 and 2 near the salesman
+        NearbyProspects prospects = new NearbyProspects();
+        prospects.update(List.of(1, 2));
+
+        // When the salesman moves near the prospects 2 and 3
+        NearbyProspects.Change change = prospects.update(List.of(2, 3));
+
+        // Then the prospect 3 entered and the prospect 1 left
+        assertEquals(List.of(3), change.entered());
+        assertEquals(List.of(1), change.left());
+        assertEquals(List.of(2, 3), prospects.getProspectIds());
+    }
+
+    @Test
+    void testUpdateWithTheSameProspects() {
+        NearbyProspects prospects = new NearbyProspects();
+        prospects.update(List.of(1, 2));
+
+        assertTrue(prospects.update(List.of(2, 1)).isEmpty());
+    }
+}
@@ -0,0 +1,78 @@
+package fr.iut.pathpilotapi.routes.nearby;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Class to test the grid of the prospects.
+ */
+class ProspectGridTest {
+
+    // About 1 km on the unit sphere
+    private static final double ONE_KM = 1.0 / 6378.137;
+
+    @Test
+    void testFindWithinSortedByDistance() {
+        // Given prospects around Rodez, in several cells
+        ProspectGrid grid = new ProspectGrid();
+        grid.add(1, 44.355, 2.575); // about 550 m
+        grid.add(2, 44.3506, 2.576); // about 80 m
+        grid.add(3, 44.3506, 2.600); // about 2 km
+        grid.add(4, 48.8566, 2.3522); // Paris
+
+        // When we search the prospects within 1 km
+        List<ProspectGrid.Neighbour> neighbours = grid.findWithin(44.3506, 2.5750, ONE_KM, Set.of(), 10);
+
+        // Then only the close ones are found, the nearest first
+        assertEquals(List.of(2, 1), neighbours.stream().map(ProspectGrid.Neighbour::id).toList());
+        assertTrue(neighbours.get(0).angle() < neighbours.get(1).angle());
+    }
+
+    @Test
+    void testFindWithinSkipsExcludedAndLimits() {
+        ProspectGrid grid = new ProspectGrid();
+        grid.add(1, 44.3506, 2.5750);
+        grid.add(2, 44.3507, 2.5750);
+        grid.add(3, 44.3508, 2.5750);
+
+        List<ProspectGrid.Neighbour> neighbours = grid.findWithin(44.3506, 2.5750, ONE_KM, Set.of(1), 1);
+
+        assertEquals(List.of(2), neighbours.stream().map(ProspectGrid.Neighbour::id).toList());
+    }
+
+    @Test
+    void testFindWithinAcrossAntimeridian() {
+        ProspectGrid grid = new ProspectGrid();
+        grid.add(1, 0.0, -179.999);
+        // Enough other cells so only the cells around the point are read
+        for (int i = 0; i < 10; i++) {
+            grid.add(100 + i, 48.0 + i * 0.1, 2.0);
+        }
+
+        List<ProspectGrid.Neighbour> neighbours = grid.findWithin(0.0, 179.999, ONE_KM, Set.of(), 10);
+
+        assertEquals(1, neighbours.size());
+    }
+
+    @Test
+    void testAddMovesAndRemoveDeletes() {
+        ProspectGrid grid = new ProspectGrid();
+        grid.add(1, 44.3506, 2.5750);
+        grid.add(2, 44.3506, 2.5750);
+
+        // The prospect 1 moves to Paris
+        grid.add(1, 48.8566, 2.3522);
+
+        assertEquals(2, grid.size());
+        assertEquals(List.of(2), grid.findWithin(44.3506, 2.5750, ONE_KM, Set.of(), 10).stream().map(ProspectGrid.Neighbour::id).toList());
+
+        assertTrue(grid.remove(2));
+        assertFalse(grid.remove(2));
+        assertFalse(grid.contains(2));
+        assertTrue(grid.findWithin(44.3506, 2.5750, ONE_KM, Set.of(), 10).isEmpty());
+    }
+}
@@ -0,0 +1,122 @@
+package fr.iut.pathpilotapi.routes.nearby;
+
+import fr.iut.pathpilotapi.clients.entity.Client;
+import fr.iut.pathpilotapi.clients.entity.ClientCategory;
+import fr.iut.pathpilotapi.clients.entity.MongoClient;
+import fr.iut.pathpilotapi.clients.event.ClientCreatedEvent;
+import fr.iut.pathpilotapi.clients.event.ClientDeletedEvent;
+import fr.iut.pathpilotapi.salesman.Salesman;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class to test the in memory index of the prospects.
+ */
+class ProspectIndexTest {
+
+    private static final GeoJsonPoint RODEZ = new GeoJsonPoint(2.5750, 44.3506);
+
+    private static final Distance ONE_KM = new Distance(1, Metrics.KILOMETERS);
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private Salesman salesman;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        salesman = new Salesman();
+        salesman.setId(1);
+    }
+
+    @Test
+    void testDisabledIndexNeverAnswers() {
+        ProspectIndex index = new ProspectIndex(mongoTemplate, false, Duration.ofHours(1));
+
+        assertNull(index.findNearby(1, RODEZ, List.of(), ONE_KM, 10));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testFindNearbyOnceLoaded() {
+        // Given the prospects of the salesman in MongoDB
+        ProspectIndex index = new ProspectIndex(mongoTemplate, true, Duration.ofHours(1));
+        when(mongoTemplate.find(any(Query.class), eq(MongoClient.class)))
+                .thenReturn(List.of(new MongoClient(1, 44.3506, 2.576), new MongoClient(2, 44.3506, 2.600)));
+
+        // When they are loaded
+        index.load(1).block();
+        GeoResults<MongoClient> nearbyClients = index.findNearby(1, RODEZ, List.of(), ONE_KM, 10);
+
+        // Then the close prospect is found with its distance in kilometers
+        assertNotNull(nearbyClients);
+        assertEquals(1, nearbyClients.getContent().size());
+        assertEquals(1, nearbyClients.getContent().get(0).getContent().getId());
+        assertEquals(Metrics.KILOMETERS, nearbyClients.getContent().get(0).getDistance().getMetric());
+        assertEquals(0.08, nearbyClients.getContent().get(0).getDistance().getValue(), 0.01);
+        // And MongoDB is only read once
+        index.load(1).block();
+        verify(mongoTemplate, times(1)).find(any(Query.class), eq(MongoClient.class));
+    }
+
+    @Test
+    void testCreatedAndDeletedProspectsAreIndexed() {
+        // Given a salesman without prospects, already loaded
+        ProspectIndex index = new ProspectIndex(mongoTemplate, true, Duration.ofHours(1));
+        when(mongoTemplate.find(any(Query.class), eq(MongoClient.class))).thenReturn(List.of());
+        index.load(1).block();
+        Client prospect = new Client();
+        prospect.setId(1);
+        prospect.setLatHomeAddress(44.3506);
+        prospect.setLongHomeAddress(2.576);
+        prospect.setClientCategory(new ClientCategory("PROSPECT"));
+        Client client = new Client();
+        client.setId(2);
+        client.setLatHomeAddress(44.3506);
+        client.setLongHomeAddress(2.576);
+        client.setClientCategory(new ClientCategory("CLIENT"));
+
+        // When a prospect and a client are created
+        index.onClientCreated(new ClientCreatedEvent(prospect, salesman));
+        index.onClientCreated(new ClientCreatedEvent(client, salesman));
+
+        // Then only the prospect is found
+        assertEquals(1, index.findNearby(1, RODEZ, List.of(), ONE_KM, 10).getContent().size());
+
+        // When the prospect is deleted, Then it isn't found anymore
+        index.onClientDeleted(new ClientDeletedEvent(prospect, salesman));
+        assertTrue(index.findNearby(1, RODEZ, List.of(), ONE_KM, 10).getContent().isEmpty());
+    }
+
+    @Test
+    void testIdleSalesmanIsEvicted() {
+        // Given the prospects of a salesman loaded, with an index evicting them as soon as they are idle
+        ProspectIndex index = new ProspectIndex(mongoTemplate, true, Duration.ZERO);
+        when(mongoTemplate.find(any(Query.class), eq(MongoClient.class))).thenReturn(List.of());
+        index.load(1).block();
+
+        // When another salesman searches his prospects
+        index.findNearby(2, RODEZ, List.of(), ONE_KM, 10);
+
+        // Then the prospects of the first salesman are evicted, and loaded again when he searches them
+        assertNull(index.findNearby(1, RODEZ, List.of(), ONE_KM, 10));
+        verify(mongoTemplate, timeout(1000).times(3)).find(any(Query.class), eq(MongoClient.class));
+    }
+}
@@ -0,0 +1,114 @@
+package fr.iut.pathpilotapi.routes.position;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ListCollectionsIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Class to test the store of the salesman positions.
+ */
+class SalesmanPositionStoreTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private SalesmanPositionStore salesmanPositionStore;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        salesmanPositionStore = new SalesmanPositionStore(mongoTemplate);
+    }
+
+    @Test
+    void testFindTraceInARange() {
+        Instant from = Instant.parse("2026-10-19T08:00:00Z");
+        Instant to = Instant.parse("2026-10-19T12:00:00Z");
+
+        salesmanPositionStore.findTrace("routeId", from, to, 500);
+
+        // The positions of the route are read in the range, sorted by timestamp
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(SalesmanPosition.class));
+        assertEquals("routeId", query.getValue().getQueryObject().get("meta.routeId"));
+        assertEquals(new Document("$gte", from).append("$lt", to), query.getValue().getQueryObject().get("timestamp"));
+        assertEquals(new Document("timestamp", 1), query.getValue().getSortObject());
+        assertEquals(500, query.getValue().getLimit());
+    }
+
+    @Test
+    void testFindWholeTrace() {
+        salesmanPositionStore.findTrace("routeId", null, null, 500);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(SalesmanPosition.class));
+        assertFalse(query.getValue().getQueryObject().containsKey("timestamp"));
+    }
+
+    @Test
+    void testEnsureCollectionOnlyCreatesItOnce() {
+        givenCollection(new Document("name", SalesmanPositionStore.COLLECTION).append("type", "timeseries"));
+
+        salesmanPositionStore.ensureCollection();
+
+        verify(mongoTemplate, never()).createCollection(SalesmanPosition.class);
+    }
+
+    @Test
+    void testEnsureCollectionCreatesIt() {
+        givenCollection(null);
+
+        salesmanPositionStore.ensureCollection();
+
+        verify(mongoTemplate).createCollection(SalesmanPosition.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEnsureCollectionConvertsARegularCollection() {
+        // Given a regular collection created by an insert before the time-series one
+        givenCollection(new Document("name", SalesmanPositionStore.COLLECTION).append("type", "collection"));
+        MongoCollection<Document> regular = mock(MongoCollection.class);
+        when(mongoTemplate.getCollection(SalesmanPositionStore.COLLECTION)).thenReturn(regular);
+        SalesmanPosition position = mock(SalesmanPosition.class);
+        when(mongoTemplate.stream(any(Query.class), eq(SalesmanPosition.class), eq(SalesmanPositionStore.COLLECTION + "_regular")))
+                .thenReturn(Stream.of(position));
+
+        salesmanPositionStore.ensureCollection();
+
+        // Then its positions are moved to a new time-series collection
+        verify(regular).renameCollection(new MongoNamespace("pathpilot", SalesmanPositionStore.COLLECTION + "_regular"));
+        verify(mongoTemplate).createCollection(SalesmanPosition.class);
+        verify(mongoTemplate).insert(List.of(position), SalesmanPosition.class);
+        verify(mongoTemplate).dropCollection(SalesmanPositionStore.COLLECTION + "_regular");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenCollection(Document description) {
+        MongoDatabase database = mock(MongoDatabase.class);
+        ListCollectionsIterable<Document> collections = mock(ListCollectionsIterable.class);
+        when(mongoTemplate.getDb()).thenReturn(database);
+        when(database.getName()).thenReturn("pathpilot");
+        when(database.listCollections()).thenReturn(collections);
+        when(collections.filter(any())).thenReturn(collections);
+        when(collections.first()).thenReturn(description);
+    }
+}
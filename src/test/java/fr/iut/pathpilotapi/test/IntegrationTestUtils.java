@@ -19,12 +19,9 @@ import fr.iut.pathpilotapi.routes.Route;
 import fr.iut.pathpilotapi.routes.dto.ClientState;
 import fr.iut.pathpilotapi.routes.dto.RouteClient;
 import fr.iut.pathpilotapi.salesman.Salesman;
-import org.springframework.data.geo.Point;
-import org.springframework.data.mongodb.core.geo.GeoJsonLineString;
 import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
@@ -211,9 +208,7 @@ public class IntegrationTestUtils {
         route.setId(UUID.randomUUID().toString());
         route.setSalesmanId(salesman.getId());
         route.setSalesman_home(position);
-        ArrayList<Point> points = new ArrayList<>();
-        points.add(new Point(salesman.getLongHomeAddress(), salesman.getLatHomeAddress()));
-        route.setSalesmanPositions(new GeoJsonLineString(points));
+        route.setSalesmanCurrentPosition(position);
         LinkedList<RouteClient> routeClients = new LinkedList<>();
         for (ClientDTO client : clients) {
             routeClients.add(new RouteClient(client, ClientState.EXPECTED));